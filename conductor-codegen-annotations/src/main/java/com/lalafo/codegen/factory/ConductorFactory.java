@@ -33,9 +33,15 @@ import java.lang.annotation.Target;
  * {@link com.lalafo.codegen.dagger2.ConductorBindingModule @ConductorBindingModule}-annotated module.
  * <p>
  * The annotation processing tool searches for any {@code Controller} annotated constructor within the project
- * and injects {@link com.lalafo.codegen.utils.ControllerFactoryDelegate ControllerFactoryDelegate}s inside the
- * implementation to delegate the Controller instantiation. This allows to support both effective incremental
- * annotation processing and keep generated {@code ControllerFactory} small and easy to read.
+ * and injects {@link com.lalafo.codegen.utils.ControllerFactoryDelegate ControllerFactoryDelegate} providers inside
+ * the implementation to delegate the Controller instantiation. A delegate is only requested from its provider when
+ * its Controller is instantiated, so creating the factory does not create any delegate or its dependencies. This
+ * allows to support both effective incremental annotation processing and keep generated {@code ControllerFactory}
+ * small and easy to read.
+ * <p>
+ * The generated {@code newInstance} switches over the saved controller class name, so restoring a known
+ * controller after process death neither loads its class nor looks up its constructors reflectively.
+ * Unknown class names are passed to the reflective {@code ControllerFactory} implementation.
  *
  * @author Artyom Dorosh [<a href="mailto:artyom.dorosh@outlook.com">artyom.dorosh@outlook.com</a>]
  * @since 0.1.0
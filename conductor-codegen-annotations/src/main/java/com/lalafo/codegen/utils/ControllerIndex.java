@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lalafo.codegen.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a generated index entry of a single {@link com.lalafo.codegen.injection.InjectController}-annotated
+ * controller.
+ * <p>
+ * Each controller compiled by the isolating injection processor gets a tiny entry in the
+ * {@code com.lalafo.codegen.index} package next to its {@code ControllerFactoryDelegate}. The aggregating
+ * {@link com.lalafo.codegen.factory.ConductorFactory} processor only lists this package to find the
+ * controllers to dispatch to, instead of inspecting every controller of the project on each build. Entries
+ * compiled into library modules are found the same way through the classpath.
+ * <p>
+ * <b>Keep in mind</b>: this annotation is <b>not</b> for in project usage outside of generated code.
+ *
+ * @author Artyom Dorosh [<a href="mailto:artyom.dorosh@outlook.com">artyom.dorosh@outlook.com</a>]
+ * @since 1.1.0
+ * @version 1.0
+ *
+ * @see ControllerFactoryDelegate
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface ControllerIndex {
+
+  /**
+   * @return canonical name of the indexed controller.
+   */
+  String value();
+}
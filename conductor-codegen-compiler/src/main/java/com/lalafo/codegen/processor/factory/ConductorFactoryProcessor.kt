@@ -20,8 +20,11 @@ import com.google.auto.common.MoreElements
 import com.google.auto.service.AutoService
 import com.lalafo.codegen.factory.ConductorFactory
 import com.lalafo.codegen.injection.InjectController
+import com.lalafo.codegen.processor.injection.CONTROLLER_INDEX_PACKAGE
 import com.lalafo.codegen.processor.injection.bindingName
+import com.lalafo.codegen.processor.injection.indexName
 import com.lalafo.codegen.processor.internal.*
+import com.lalafo.codegen.utils.ControllerIndex
 import com.squareup.javapoet.JavaFile
 import net.ltgt.gradle.incap.IncrementalAnnotationProcessor
 import net.ltgt.gradle.incap.IncrementalAnnotationProcessorType
@@ -42,13 +45,13 @@ class ConductorFactoryProcessor : AbstractProcessor() {
     private lateinit var elements: Elements
     private lateinit var types: Types
 
-    private val unprocessedBindingNames = mutableListOf<Name>()
+    private var pendingFactoryName: Name? = null
 
     override fun getSupportedSourceVersion() = SourceVersion.latest()
 
     override fun getSupportedAnnotationTypes() = setOf(
         ConductorFactory::class.java.canonicalName,
-        InjectController::class.java.canonicalName
+        ControllerIndex::class.java.canonicalName
     )
 
     override fun init(env: ProcessingEnvironment) {
@@ -61,25 +64,45 @@ class ConductorFactoryProcessor : AbstractProcessor() {
     }
 
     override fun process(annotations: Set<TypeElement>, roundEnv: RoundEnvironment): Boolean {
-        unprocessedBindingNames += roundEnv.findElementsAnnotatedWith<InjectController>()
-            .map { it.enclosingElement as TypeElement }
-            .map { it.qualifiedName }
+        val factoryName = pendingFactoryName
+            ?: roundEnv.findControllerFactoryCandidateOrNull()?.qualifiedName
+            ?: return false
+
+        // Index entries of controllers compiled in this round are generated along with their delegates and only
+        // become visible in the next round, so the factory waits for them. It is never left for the last round,
+        // which would keep it from being processed by Dagger.
+        if (!roundEnv.processingOver() && roundEnv.hasUnindexedControllers()) {
+            pendingFactoryName = factoryName
+            return false
+        }
+        pendingFactoryName = null
 
-        val factoryCandidate = roundEnv.findControllerFactoryCandidateOrNull() ?: return false
         val providerDelegates = findAllControllerInjectionCandidates()
             .map { it.toFactoryDelegateProvider() }
 
-        val factory = factoryCandidate.toControllerFactoryOrNull(providerDelegates) ?: return false
+        val factory = elements.getTypeElement(factoryName).toControllerFactoryOrNull(providerDelegates) ?: return false
         writeFactory(factory)
 
         return false
     }
 
     private fun findAllControllerInjectionCandidates(): List<TypeElement> {
-        return unprocessedBindingNames
+        // Controllers are only known through their index entries, no matter which module compiled them.
+        return elements.getPackageElement(CONTROLLER_INDEX_PACKAGE)
+            ?.enclosedElements
+            .orEmpty()
+            .mapNotNull { it.getAnnotation(ControllerIndex::class.java)?.value }
+            .sorted()
+            .distinct()
             .mapNotNull(elements::getTypeElement)
     }
 
+    private fun RoundEnvironment.hasUnindexedControllers(): Boolean {
+        return findElementsAnnotatedWith<InjectController>()
+            .map { it.enclosingElement as TypeElement }
+            .any { elements.getTypeElement(it.toClassName().indexName().canonicalName()) == null }
+    }
+
     private fun TypeElement.toFactoryDelegateProvider(): FactoryDelegateProvider {
         // Skip validation, let the binding processor do this
         val targetName = toClassName()
@@ -180,9 +203,6 @@ class ConductorFactoryProcessor : AbstractProcessor() {
         val generatedTypeSpec = factory.brewJava()
             .toBuilder()
             .addOriginatingElement(factory.factoryType)
-            .applyEach(factory.delegates) {
-                addOriginatingElement(it.targetElement)
-            }
             .build()
 
         JavaFile.builder(factory.generatedType.packageName(), generatedTypeSpec)
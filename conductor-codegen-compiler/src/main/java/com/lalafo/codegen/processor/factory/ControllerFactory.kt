@@ -28,7 +28,11 @@ private val NULLABLE = ClassName.get("androidx.annotation", "Nullable")
 private val CONTROLLER = ClassName.get("com.bluelinelabs.conductor", "Controller")
 private val JAVAX_INJECT = ClassName.get("javax.inject", "Inject")
 
-private val KLASS = ClassName.get("java.lang", "Class")
+/**
+ * Upper bound of `case` labels in a single generated string switch. Every label costs a few dozen bytes of
+ * bytecode, so bigger projects are split into several switches to stay far from the 64KB method size limit.
+ */
+internal const val MAX_CASES_PER_SWITCH = 128
 
 internal data class ControllerFactory(
     val factoryType: TypeElement,
@@ -39,6 +43,20 @@ internal data class ControllerFactory(
 ) {
     val generatedType = factoryName.controllerFactoryName()
 
+    /** Number of hash buckets, always a power of two so the bucket is picked by masking the name hash. */
+    private val bucketCount: Int = run {
+        var count = 1
+        while (delegates.size > count * MAX_CASES_PER_SWITCH) {
+            count *= 2
+        }
+        count
+    }
+
+    /** Non-empty buckets of delegates, keyed by `className.hashCode() & (bucketCount - 1)`. */
+    private val buckets: Map<Int, List<FactoryDelegateProvider>> = delegates
+        .groupBy { it.className.hashCode() and (bucketCount - 1) }
+        .toSortedMap()
+
     fun brewJava(): TypeSpec {
         return TypeSpec.classBuilder(generatedType)
             .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
@@ -49,7 +67,7 @@ internal data class ControllerFactory(
                 }
             }
             .applyEach(delegates) {
-                addField(FieldSpec.builder(it.factoryDelegateType, it.propertyName, Modifier.PRIVATE, Modifier.FINAL)
+                addField(FieldSpec.builder(it.delegateProviderType, it.propertyName, Modifier.PRIVATE, Modifier.FINAL)
                     .addAnnotation(NON_NULL)
                     .build())
             }
@@ -58,7 +76,7 @@ internal data class ControllerFactory(
                 .addAnnotation(JAVAX_INJECT)
                 .addStatement("super()")
                 .applyEach(delegates) {
-                    addParameter(ParameterSpec.builder(it.bindingType.withoutAnnotations(), it.propertyName, Modifier.FINAL)
+                    addParameter(ParameterSpec.builder(it.delegateProviderType, it.propertyName, Modifier.FINAL)
                         .addAnnotation(NON_NULL)
                         .build())
                     addStatement("this.$1N = $1N", it.propertyName)
@@ -84,38 +102,89 @@ internal data class ControllerFactory(
                         .addAnnotation(NULLABLE)
                         .build()
                 )
-                .addStatement(
-                    "$1T clazz = loadControllerClass(classLoader, className)",
-                    ParameterizedTypeName.get(KLASS, WildcardTypeName.subtypeOf(CONTROLLER))
-                )
                 .apply {
-                    if (delegates.isEmpty()) {
-                        addStatement("return super.newInstance(classLoader, className, args)")
-                        return@apply
-                    }
-
-                    var useElse = false
-                    delegates.forEach {
-                        val useElseCopy = useElse
-                        if (!useElse) useElse = true
-                        val statement = (if (useElseCopy) "else " else "") + "if ($1T.class == clazz)"
-                        if (!useElseCopy) {
-                            beginControlFlow(statement, it.targetType)
-                        } else {
-                            nextControlFlow(statement, it.targetType)
+                    when {
+                        delegates.isEmpty() -> {
+                            addStatement("return super.newInstance(classLoader, className, args)")
+                        }
+                        bucketCount == 1 -> {
+                            // Dispatch on the saved class name, so known controllers are created
+                            // without loading their class or resolving constructors reflectively.
+                            addClassNameSwitch(delegates) {
+                                addComment("Instantiate controller from reflection with super")
+                                addStatement("return super.newInstance(classLoader, className, args)")
+                            }
+                        }
+                        else -> {
+                            addStatement("final \$T controller", CONTROLLER)
+                            beginControlFlow("switch (className.hashCode() & \$L)", bucketCount - 1)
+                            buckets.keys.forEach { bucket ->
+                                addCode("case \$L:\n\$>", bucket)
+                                addStatement("controller = \$N(className, args)", bucketMethodName(bucket))
+                                addStatement("break")
+                                addCode("\$<")
+                            }
+                            addCode("default:\n\$>")
+                            addStatement("controller = null")
+                            addCode("\$<")
+                            endControlFlow()
+                            beginControlFlow("if (controller != null)")
+                            addStatement("return controller")
+                            endControlFlow()
+                            addComment("Instantiate controller from reflection with super")
+                            addStatement("return super.newInstance(classLoader, className, args)")
                         }
-                        addStatement("return ${it.propertyName}.newInstanceWithArguments(args)")
                     }
-                    endControlFlow()
-                    addComment("Instantiate controller from reflection with super")
-                    addStatement("return super.newInstance(classLoader, className, args)")
                 }
                 .build()
             )
+            .applyEach(if (bucketCount > 1) buckets.entries else emptySet()) { (bucket, bucketDelegates) ->
+                addMethod(MethodSpec.methodBuilder(bucketMethodName(bucket))
+                    .addModifiers(Modifier.PRIVATE)
+                    .addAnnotation(NULLABLE)
+                    .returns(CONTROLLER)
+                    .addParameter(
+                        ParameterSpec.builder(String::class.java, "className")
+                            .addAnnotation(NON_NULL)
+                            .build()
+                    )
+                    .addParameter(
+                        ParameterSpec.builder(Object::class.java, "args")
+                            .addAnnotation(NULLABLE)
+                            .build()
+                    )
+                    .addClassNameSwitch(bucketDelegates) {
+                        addStatement("return null")
+                    }
+                    .build())
+            }
             .build()
     }
+
+    private fun bucketMethodName(bucket: Int) = "newInstanceFromBucket$bucket"
+
+    /**
+     * Adds a switch over `className` returning the controller created by the matching delegate. [fallback]
+     * emits the statements for unknown class names.
+     */
+    private inline fun MethodSpec.Builder.addClassNameSwitch(
+        delegates: List<FactoryDelegateProvider>,
+        fallback: MethodSpec.Builder.() -> Unit
+    ): MethodSpec.Builder {
+        beginControlFlow("switch (className)")
+        delegates.forEach {
+            addCode("case \$S:\n\$>", it.className)
+            addStatement("return \$N.get().newInstanceWithArguments(args)", it.propertyName)
+            addCode("\$<")
+        }
+        addCode("default:\n\$>")
+        fallback()
+        addCode("\$<")
+        endControlFlow()
+        return this
+    }
 }
 
 fun ClassName.controllerFactoryName(): ClassName {
     return peerClassWithReflectionNesting("${simpleNames().joinToString(separator = "_")}_GeneratedConductorFactory")
-}
\ No newline at end of file
+}
@@ -21,7 +21,6 @@ import com.squareup.javapoet.ParameterizedTypeName
 import javax.lang.model.element.TypeElement
 
 private val JAVAX_PROVIDER = ClassName.get("javax.inject", "Provider")
-private val CONTROLLER_FACTORY_DELEGATE=  ClassName.get("com.lalafo.codegen.utils", "ControllerFactoryDelegate")
 
 internal data class FactoryDelegateProvider(
     val targetElement: TypeElement,
@@ -29,6 +28,13 @@ internal data class FactoryDelegateProvider(
     val bindingType: ClassName
 ) {
 
-    val propertyName get() = targetType.reflectionName().replace('.', '_')
-    val factoryDelegateType get() = ParameterizedTypeName.get(CONTROLLER_FACTORY_DELEGATE, targetType)
+    /** The name the controller is saved with, as returned by `Class.getName()`. */
+    val className: String get() = targetType.reflectionName()
+    val propertyName get() = className.replace('.', '_')
+
+    /**
+     * Delegates are injected through a [javax.inject.Provider], so that neither the delegate nor its
+     * dependencies are created before the first instantiation of its controller.
+     */
+    val delegateProviderType get() = ParameterizedTypeName.get(JAVAX_PROVIDER, bindingType.withoutAnnotations())
 }
\ No newline at end of file
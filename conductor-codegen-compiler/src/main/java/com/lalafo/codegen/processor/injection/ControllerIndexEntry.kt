@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lalafo.codegen.processor.injection
+
+import com.lalafo.codegen.utils.ControllerIndex
+import com.squareup.javapoet.*
+import javax.lang.model.element.Modifier
+
+/** Package holding one [ControllerIndex] entry per `@InjectController`-annotated controller. */
+const val CONTROLLER_INDEX_PACKAGE = "com.lalafo.codegen.index"
+
+private val CONTROLLER_INDEX = ClassName.get(ControllerIndex::class.java)
+
+/**
+ * An empty marker type naming an injectable controller. Entries are written by the isolating injection
+ * processor, so the aggregating factory processor can discover controllers by listing a single package.
+ */
+data class ControllerIndexEntry(
+    // Target controller type name
+    val targetType: ClassName,
+    // Generated
+    val generatedAnnotation: AnnotationSpec?
+) {
+
+    val generatedType = targetType.indexName()
+
+    fun brewJava(): TypeSpec {
+        return TypeSpec.classBuilder(generatedType)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addAnnotation(AnnotationSpec.builder(CONTROLLER_INDEX)
+                .addMember("value", "\$S", targetType.canonicalName())
+                .build())
+            .apply {
+                if (generatedAnnotation != null) {
+                    addAnnotation(generatedAnnotation)
+                }
+            }
+            .addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PRIVATE)
+                .build())
+            .build()
+    }
+}
+
+/**
+ * Flattens the canonical name into a single top-level name, escaping `_` first so that `a.b_c.D` and
+ * `a_b.c.D` never collide.
+ */
+fun ClassName.indexName(): ClassName = ClassName.get(
+    CONTROLLER_INDEX_PACKAGE,
+    canonicalName().replace("_", "__").replace('.', '_')
+)
@@ -334,6 +334,22 @@ class ControllerInjectionProcessor : AbstractProcessor() {
             .addFileComment("Generated by @InjectController. Do not modify!")
             .build()
             .writeTo(filer)
+
+        // The index entry lets the aggregating factory processor find this controller without
+        // being handed every controller of the project as an originating element.
+        val indexEntry = ControllerIndexEntry(
+            elements.targetType.toClassName(),
+            injection.generatedAnnotation
+        )
+        val indexTypeSpec = indexEntry.brewJava()
+            .toBuilder()
+            .addOriginatingElement(elements.targetType)
+            .build()
+
+        JavaFile.builder(indexEntry.generatedType.packageName(), indexTypeSpec)
+            .addFileComment("Generated by @InjectController. Do not modify!")
+            .build()
+            .writeTo(filer)
     }
 
     private fun warn(message: String, element: Element? = null) {
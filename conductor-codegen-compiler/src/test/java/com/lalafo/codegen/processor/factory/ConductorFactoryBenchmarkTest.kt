@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lalafo.codegen.processor.factory
+
+import com.google.common.truth.Truth.assertThat
+import com.google.testing.compile.Compilation
+import com.google.testing.compile.Compiler.javac
+import org.junit.Test
+import java.lang.reflect.Method
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.Proxy
+import java.lang.reflect.Type
+import javax.inject.Provider
+
+private const val WARMUP_ROUNDS = 5
+private const val MEASURED_ROUNDS = 20
+private const val INSTANTIATIONS_PER_ROUND = 10_000
+
+/**
+ * Benchmarks the dispatch code generated by [ConductorFactoryProcessor] for projects of different sizes.
+ * Timings are printed, only the correctness of the dispatch is asserted.
+ */
+class ConductorFactoryBenchmarkTest {
+
+    @Test
+    fun dispatch10Controllers() = benchmarkDispatch(10)
+
+    @Test
+    fun dispatch100Controllers() = benchmarkDispatch(100)
+
+    @Test
+    fun dispatch1000Controllers() = benchmarkDispatch(1000)
+
+    private fun benchmarkDispatch(controllerCount: Int) {
+        val project = SyntheticProject(controllerCount)
+        val compilation = javac()
+            .withProcessors(ConductorFactoryProcessor())
+            .compile(project.sources())
+        assertThat(compilation.status()).isEqualTo(Compilation.Status.SUCCESS)
+
+        val classLoader = CompilationClassLoader(compilation)
+        val factoryClass = classLoader.loadClass(project.factoryClassName)
+        val factory = factoryClass.constructors.single().let { constructor ->
+            constructor.newInstance(*constructor.genericParameterTypes.map { providerOf(classLoader, it) }.toTypedArray())
+        }
+        val newInstance = factoryClass.getMethod(
+            "newInstance", ClassLoader::class.java, String::class.java, Any::class.java
+        )
+
+        // Every known class name has to be created by its own delegate, unknown ones are left to super
+        project.controllerClassNames.forEach { className ->
+            assertThat(newInstance.invoke(factory, classLoader, className, null).javaClass.name).isEqualTo(className)
+        }
+        assertThat(newInstance.invoke(factory, classLoader, "test.UnknownController", null)).isNull()
+
+        val bucketMethods = factoryClass.declaredMethods.count { it.name.startsWith("newInstanceFromBucket") }
+        if (controllerCount > MAX_CASES_PER_SWITCH) {
+            assertThat(bucketMethods).isGreaterThan(1)
+        } else {
+            assertThat(bucketMethods).isEqualTo(0)
+        }
+
+        val first = project.controllerClassNames.first()
+        val last = project.controllerClassNames.last()
+        val firstNanos = measure(newInstance, factory, classLoader, first)
+        val lastNanos = measure(newInstance, factory, classLoader, last)
+        println(
+            "[benchmark] generated factory with $controllerCount controllers: " +
+                "first %.1f ns/op, last %.1f ns/op".format(firstNanos, lastNanos)
+        )
+    }
+
+    /** Creates a `Provider<Delegate>` for the given generic constructor parameter type. */
+    private fun providerOf(classLoader: ClassLoader, providerType: Type): Any {
+        val delegateClass = (providerType as ParameterizedType).actualTypeArguments.single() as Class<*>
+        val delegate = delegateClass.getDeclaredConstructor().newInstance()
+        return Proxy.newProxyInstance(classLoader, arrayOf(Provider::class.java)) { _, method, _ ->
+            check(method.name == "get") { "Unexpected call to ${method.name}" }
+            delegate
+        }
+    }
+
+    private fun measure(newInstance: Method, factory: Any, classLoader: ClassLoader, className: String): Double {
+        repeat(WARMUP_ROUNDS) { instantiate(newInstance, factory, classLoader, className) }
+
+        val rounds = LongArray(MEASURED_ROUNDS) {
+            val start = System.nanoTime()
+            instantiate(newInstance, factory, classLoader, className)
+            System.nanoTime() - start
+        }
+        rounds.sort()
+        return rounds[MEASURED_ROUNDS / 2].toDouble() / INSTANTIATIONS_PER_ROUND
+    }
+
+    private fun instantiate(newInstance: Method, factory: Any, classLoader: ClassLoader, className: String) {
+        repeat(INSTANTIATIONS_PER_ROUND) {
+            newInstance.invoke(factory, classLoader, className, null)
+        }
+    }
+}
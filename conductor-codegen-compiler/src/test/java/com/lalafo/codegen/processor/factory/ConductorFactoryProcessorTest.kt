@@ -17,8 +17,11 @@
 package com.lalafo.codegen.processor.factory
 
 import com.google.common.truth.Truth.assertAbout
+import com.google.testing.compile.CompilationSubject.assertThat
+import com.google.testing.compile.Compiler.javac
 import com.google.testing.compile.JavaFileObjects
 import com.google.testing.compile.JavaSourcesSubjectFactory.javaSources
+import com.lalafo.codegen.processor.injection.ControllerInjectionProcessor
 import org.junit.Before
 import org.junit.Test
 import javax.tools.JavaFileObject
@@ -141,23 +144,22 @@ class ConductorFactoryProcessorTest {
             import androidx.annotation.NonNull;
             import androidx.annotation.Nullable;
             import com.bluelinelabs.conductor.Controller;
-            import com.lalafo.codegen.utils.ControllerFactoryDelegate;
-            import java.lang.Class;
             import java.lang.ClassLoader;
             import java.lang.Object;
             import java.lang.Override;
             import java.lang.String;
             import $GENERATED_TYPE;
             import javax.inject.Inject;
+            import javax.inject.Provider;
             
             $GENERATED_ANNOTATION
             public final class TestControllerFactory_GeneratedConductorFactory extends TestControllerFactory {
                 @NonNull
-                private final ControllerFactoryDelegate<TestController> test_TestController;
+                private final Provider<TestController_ControllerFactoryDelegate> test_TestController;
                 
                 @Inject
                 public TestControllerFactory_GeneratedConductorFactory(
-                    @NonNull final TestController_ControllerFactoryDelegate test_TestController) {
+                    @NonNull final Provider<TestController_ControllerFactoryDelegate> test_TestController) {
                     super();
                     this.test_TestController = test_TestController;
                 }
@@ -165,12 +167,13 @@ class ConductorFactoryProcessorTest {
                 @NonNull
                 @Override
                 public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
-                    Class<? extends Controller> clazz = loadControllerClass(classLoader, className);
-                    if (TestController.class == clazz) {
-                        return test_TestController.newInstanceWithArguments(args);
+                    switch (className) {
+                        case "test.TestController":
+                            return test_TestController.get().newInstanceWithArguments(args);
+                        default:
+                            // Instantiate controller from reflection with super
+                            return super.newInstance(classLoader, className, args);
                     }
-                    // Instantiate controller from reflection with super
-                    return super.newInstance(classLoader, className, args);
                 }
             }
         """.trimIndent()
@@ -180,7 +183,8 @@ class ConductorFactoryProcessorTest {
             .that(
                 listOf(
                     controllerFactoryFile, controllerArgsFile, controllerFile,
-                    controller, controllerFactoryDelegate, appControllerFactory
+                    controller, controllerFactoryDelegate, controllerIndexEntry("test.TestController"),
+                    appControllerFactory
                 )
             )
             .processedWith(ConductorFactoryProcessor())
@@ -246,23 +250,22 @@ class ConductorFactoryProcessorTest {
             import androidx.annotation.NonNull;
             import androidx.annotation.Nullable;
             import com.bluelinelabs.conductor.Controller;
-            import com.lalafo.codegen.utils.ControllerFactoryDelegate;
-            import java.lang.Class;
             import java.lang.ClassLoader;
             import java.lang.Object;
             import java.lang.Override;
             import java.lang.String;
             import $GENERATED_TYPE;
             import javax.inject.Inject;
+            import javax.inject.Provider;
             
             $GENERATED_ANNOTATION
             public final class TestControllerFactory_GeneratedConductorFactory extends TestControllerFactory {
                 @NonNull
-                private final ControllerFactoryDelegate<TestController> test_TestController;
+                private final Provider<TestController_ControllerFactoryDelegate> test_TestController;
                 
                 @Inject
                 public TestControllerFactory_GeneratedConductorFactory(
-                    @NonNull final TestController_ControllerFactoryDelegate test_TestController) {
+                    @NonNull final Provider<TestController_ControllerFactoryDelegate> test_TestController) {
                     super();
                     this.test_TestController = test_TestController;
                 }
@@ -270,12 +273,13 @@ class ConductorFactoryProcessorTest {
                 @NonNull
                 @Override
                 public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
-                    Class<? extends Controller> clazz = loadControllerClass(classLoader, className);
-                    if (TestController.class == clazz) {
-                        return test_TestController.newInstanceWithArguments(args);
+                    switch (className) {
+                        case "test.TestController":
+                            return test_TestController.get().newInstanceWithArguments(args);
+                        default:
+                            // Instantiate controller from reflection with super
+                            return super.newInstance(classLoader, className, args);
                     }
-                    // Instantiate controller from reflection with super
-                    return super.newInstance(classLoader, className, args);
                 }
             }
         """.trimIndent()
@@ -285,7 +289,8 @@ class ConductorFactoryProcessorTest {
             .that(
                 listOf(
                     controllerFactoryFile, controllerArgsFile, controllerFile,
-                    controller, controllerFactoryDelegate, appControllerFactory
+                    controller, controllerFactoryDelegate, controllerIndexEntry("test.TestController"),
+                    appControllerFactory
                 )
             )
             .processedWith(ConductorFactoryProcessor())
@@ -387,44 +392,44 @@ class ConductorFactoryProcessorTest {
             import androidx.annotation.NonNull;
             import androidx.annotation.Nullable;
             import com.bluelinelabs.conductor.Controller;
-            import com.lalafo.codegen.utils.ControllerFactoryDelegate;
-            import java.lang.Class;
             import java.lang.ClassLoader;
             import java.lang.Object;
             import java.lang.Override;
             import java.lang.String;
             import $GENERATED_TYPE;
             import javax.inject.Inject;
+            import javax.inject.Provider;
             
             $GENERATED_ANNOTATION
             public final class TestControllerFactory_GeneratedConductorFactory extends TestControllerFactory {
                 @NonNull
-                private final ControllerFactoryDelegate<TestController> test_TestController;
+                private final Provider<SecondController_ControllerFactoryDelegate> test_SecondController;
                 
                 @NonNull
-                private final ControllerFactoryDelegate<SecondController> test_SecondController;
+                private final Provider<TestController_ControllerFactoryDelegate> test_TestController;
                 
                 @Inject
                 public TestControllerFactory_GeneratedConductorFactory(
-                    @NonNull final TestController_ControllerFactoryDelegate test_TestController,
-                    @NonNull final SecondController_ControllerFactoryDelegate test_SecondController
+                    @NonNull final Provider<SecondController_ControllerFactoryDelegate> test_SecondController,
+                    @NonNull final Provider<TestController_ControllerFactoryDelegate> test_TestController
                 ) {
                     super();
-                    this.test_TestController = test_TestController;
                     this.test_SecondController = test_SecondController;
+                    this.test_TestController = test_TestController;
                 }
                 
                 @NonNull
                 @Override
                 public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
-                    Class<? extends Controller> clazz = loadControllerClass(classLoader, className);
-                    if (TestController.class == clazz) {
-                        return test_TestController.newInstanceWithArguments(args);
-                    } else if (SecondController.class == clazz) {
-                        return test_SecondController.newInstanceWithArguments(args);
+                    switch (className) {
+                        case "test.SecondController":
+                            return test_SecondController.get().newInstanceWithArguments(args);
+                        case "test.TestController":
+                            return test_TestController.get().newInstanceWithArguments(args);
+                        default:
+                            // Instantiate controller from reflection with super
+                            return super.newInstance(classLoader, className, args);
                     }
-                    // Instantiate controller from reflection with super
-                    return super.newInstance(classLoader, className, args);
                 }
             }
         """.trimIndent()
@@ -434,8 +439,8 @@ class ConductorFactoryProcessorTest {
             .that(
                 listOf(
                     controllerFactoryFile, controllerArgsFile, controllerFile,
-                    controller, controllerFactoryDelegate,
-                    controllerTwo, controllerFactoryDelegateTwo,
+                    controller, controllerFactoryDelegate, controllerIndexEntry("test.TestController"),
+                    controllerTwo, controllerFactoryDelegateTwo, controllerIndexEntry("test.SecondController"),
                     appControllerFactory
                 )
             )
@@ -445,6 +450,149 @@ class ConductorFactoryProcessorTest {
             .generatesSources(expected)
     }
 
+    @Test
+    fun indexedController() {
+        // Stands for a controller compiled by a library module, known to this compilation only by its index entry.
+        val controller = JavaFileObjects.forSourceString(
+            "test.LibraryController", """
+            package test;
+            
+            import com.bluelinelabs.conductor.Controller;
+            import com.bluelinelabs.conductor.ControllerArgs;
+            
+            public class LibraryController extends Controller {
+                LibraryController(Long foo, ControllerArgs arguments) {
+                    super(arguments);
+                }
+            }
+        """.trimIndent()
+        )
+
+        val controllerFactoryDelegate = JavaFileObjects.forSourceString(
+            "test.LibraryController_ControllerFactoryDelegate", """
+            package test;
+
+            import com.lalafo.codegen.utils.ControllerFactoryDelegate;
+            import java.lang.Object;
+            import java.lang.Override;
+            
+            public final class LibraryController_ControllerFactoryDelegate implements ControllerFactoryDelegate<LibraryController> {
+
+                @Override
+                public LibraryController newInstanceWithArguments(final Object instantiationArguments) {
+                    return null;
+                }
+            }
+        """
+        )
+
+        val appControllerFactory = JavaFileObjects.forSourceString(
+            "test.TestControllerFactory", """
+                package test;
+                
+                import com.bluelinelabs.conductor.ControllerFactory;
+                import com.lalafo.codegen.factory.ConductorFactory;
+                
+                @ConductorFactory
+                class TestControllerFactory extends ControllerFactory { }
+            """.trimIndent()
+        )
+
+        val expected = JavaFileObjects.forSourceString(
+            "test.TestControllerFactory_GeneratedConductorFactory", """
+            package test;
+            
+            import androidx.annotation.NonNull;
+            import androidx.annotation.Nullable;
+            import com.bluelinelabs.conductor.Controller;
+            import java.lang.ClassLoader;
+            import java.lang.Object;
+            import java.lang.Override;
+            import java.lang.String;
+            import $GENERATED_TYPE;
+            import javax.inject.Inject;
+            import javax.inject.Provider;
+            
+            $GENERATED_ANNOTATION
+            public final class TestControllerFactory_GeneratedConductorFactory extends TestControllerFactory {
+                @NonNull
+                private final Provider<LibraryController_ControllerFactoryDelegate> test_LibraryController;
+                
+                @Inject
+                public TestControllerFactory_GeneratedConductorFactory(
+                    @NonNull final Provider<LibraryController_ControllerFactoryDelegate> test_LibraryController) {
+                    super();
+                    this.test_LibraryController = test_LibraryController;
+                }
+                
+                @NonNull
+                @Override
+                public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
+                    switch (className) {
+                        case "test.LibraryController":
+                            return test_LibraryController.get().newInstanceWithArguments(args);
+                        default:
+                            // Instantiate controller from reflection with super
+                            return super.newInstance(classLoader, className, args);
+                    }
+                }
+            }
+        """.trimIndent()
+        )
+
+        assertAbout(javaSources())
+            .that(
+                listOf(
+                    controllerFactoryFile, controllerArgsFile, controllerFile,
+                    controller, controllerFactoryDelegate, controllerIndexEntry("test.LibraryController"),
+                    appControllerFactory
+                )
+            )
+            .processedWith(ConductorFactoryProcessor())
+            .compilesWithoutWarnings()
+            .and()
+            .generatesSources(expected)
+    }
+
+    @Test
+    fun controllersCompiledWithFactory() {
+        // Index entries of these controllers are generated in the first round, the factory has to wait for them
+        val project = SyntheticProject(2, withDelegates = false)
+        val compilation = javac()
+            .withProcessors(ControllerInjectionProcessor(), ConductorFactoryProcessor())
+            .compile(project.sources())
+
+        // Written in the last round, the factory would be compiled with a warning and without further processing
+        assertThat(compilation).succeededWithoutWarnings()
+        val factorySource = assertThat(compilation)
+            .generatedSourceFile(project.factoryClassName)
+            .contentsAsUtf8String()
+        project.controllerClassNames.forEach { factorySource.contains("case \"$it\":") }
+    }
+
+    @Test
+    fun noControllers() {
+        val appControllerFactory = JavaFileObjects.forSourceString(
+            "test.TestControllerFactory", """
+                package test;
+                
+                import com.bluelinelabs.conductor.ControllerFactory;
+                import com.lalafo.codegen.factory.ConductorFactory;
+                
+                @ConductorFactory
+                class TestControllerFactory extends ControllerFactory { }
+            """.trimIndent()
+        )
+
+        // Nothing else is generated, so the factory must not be left for the last round
+        val compilation = javac()
+            .withProcessors(ControllerInjectionProcessor(), ConductorFactoryProcessor())
+            .compile(controllerFactoryFile, controllerArgsFile, controllerFile, appControllerFactory)
+
+        assertThat(compilation).succeededWithoutWarnings()
+        assertThat(compilation).generatedSourceFile("test.TestControllerFactory_GeneratedConductorFactory")
+    }
+
     @Test
     fun multipleFactoriesFails() {
         val appControllerFactory = JavaFileObjects.forSourceString(
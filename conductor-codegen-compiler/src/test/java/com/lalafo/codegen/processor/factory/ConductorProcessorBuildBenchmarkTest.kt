@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lalafo.codegen.processor.factory
+
+import com.google.common.truth.Truth.assertThat
+import com.google.testing.compile.Compilation
+import com.google.testing.compile.Compiler.javac
+import com.lalafo.codegen.processor.injection.CONTROLLER_INDEX_PACKAGE
+import com.lalafo.codegen.processor.injection.ControllerInjectionProcessor
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import javax.annotation.processing.Processor
+import javax.annotation.processing.RoundEnvironment
+import javax.lang.model.element.TypeElement
+import javax.tools.JavaFileObject
+
+/**
+ * Benchmarks the build time of a full annotation processing pass, the isolating [ControllerInjectionProcessor]
+ * together with the aggregating [ConductorFactoryProcessor], for projects of different sizes. Timings are
+ * printed, only the generated index and factory are asserted.
+ *
+ * Compiling thousands of sources takes a while, so these only run when the `conductor.benchmark.build` system
+ * property is `true`, e.g. through `./gradlew :conductor-codegen-compiler:test -Pconductor.benchmark.build=true`.
+ */
+class ConductorProcessorBuildBenchmarkTest {
+
+    @Before
+    fun setup() {
+        assumeTrue(java.lang.Boolean.getBoolean("conductor.benchmark.build"))
+    }
+
+    @Test
+    fun build100Controllers() = benchmarkBuild(100)
+
+    @Test
+    fun build1000Controllers() = benchmarkBuild(1000)
+
+    @Test
+    fun build5000Controllers() = benchmarkBuild(5000)
+
+    private fun benchmarkBuild(controllerCount: Int) {
+        val project = SyntheticProject(controllerCount, withDelegates = false)
+        val injectionProcessor = TimedProcessor(ControllerInjectionProcessor())
+        val factoryProcessor = TimedProcessor(ConductorFactoryProcessor())
+
+        val start = System.nanoTime()
+        val compilation = javac()
+            .withProcessors(injectionProcessor, factoryProcessor)
+            .compile(project.sources())
+        val totalNanos = System.nanoTime() - start
+        assertThat(compilation.status()).isEqualTo(Compilation.Status.SUCCESS)
+
+        // Every controller gets its own delegate and index entry, the factory dispatches to all of them
+        val generatedSources = compilation.generatedFiles()
+            .filter { it.kind == JavaFileObject.Kind.SOURCE }
+            .map { it.toUri().path }
+        val indexPath = CONTROLLER_INDEX_PACKAGE.replace('.', '/') + "/"
+        assertThat(generatedSources.count { it.contains(indexPath) }).isEqualTo(controllerCount)
+        assertThat(generatedSources.count { it.endsWith("_ControllerFactoryDelegate.java") }).isEqualTo(controllerCount)
+
+        val factoryClass = CompilationClassLoader(compilation).loadClass(project.factoryClassName)
+        assertThat(factoryClass.constructors.single().parameterTypes.size).isEqualTo(controllerCount)
+
+        println(
+            "[benchmark] processor build with $controllerCount controllers: total %d ms, injection %d ms, factory %d ms"
+                .format(totalNanos / 1_000_000, injectionProcessor.nanos / 1_000_000, factoryProcessor.nanos / 1_000_000)
+        )
+    }
+
+    /** Accumulates the time spent in [Processor.process] of the wrapped processor. */
+    private class TimedProcessor(private val delegate: Processor) : Processor by delegate {
+        var nanos = 0L
+            private set
+
+        override fun process(annotations: Set<TypeElement>, roundEnv: RoundEnvironment): Boolean {
+            val start = System.nanoTime()
+            try {
+                return delegate.process(annotations, roundEnv)
+            } finally {
+                nanos += System.nanoTime() - start
+            }
+        }
+    }
+}
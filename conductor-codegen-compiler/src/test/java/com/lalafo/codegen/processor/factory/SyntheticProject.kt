@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lalafo.codegen.processor.factory
+
+import com.google.testing.compile.Compilation
+import com.google.testing.compile.JavaFileObjects
+import javax.tools.JavaFileObject
+
+/**
+ * Sources of a synthetic project with [controllerCount] injectable controllers, their factory delegates and a
+ * single `@ConductorFactory`, used by the processor benchmarks. Conductor itself is replaced with minimal stubs,
+ * so the compiled output can also be loaded and executed.
+ *
+ * Without [withDelegates] the factory delegates and index entries are left out, to be generated by the injection
+ * processor.
+ */
+internal class SyntheticProject(val controllerCount: Int, private val withDelegates: Boolean = true) {
+
+    val controllerClassNames = (0 until controllerCount).map { "test.TestController$it" }
+
+    val factoryClassName = "test.TestControllerFactory_GeneratedConductorFactory"
+
+    fun sources(): List<JavaFileObject> = stubs() + controllers() + factory()
+
+    private fun stubs() = listOf(
+        JavaFileObjects.forSourceString(
+            "com.bluelinelabs.conductor.Controller", """
+            package com.bluelinelabs.conductor;
+
+            public class Controller {
+                private final ControllerArgs controllerArgs;
+
+                protected Controller(ControllerArgs controllerArgs) {
+                    this.controllerArgs = controllerArgs;
+                }
+            }
+        """.trimIndent()
+        ),
+        JavaFileObjects.forSourceString(
+            "com.bluelinelabs.conductor.ControllerArgs", """
+            package com.bluelinelabs.conductor;
+
+            public interface ControllerArgs {}
+        """.trimIndent()
+        ),
+        JavaFileObjects.forSourceString(
+            "com.bluelinelabs.conductor.ControllerFactory", """
+            package com.bluelinelabs.conductor;
+
+            public class ControllerFactory {
+
+                public static Class<? extends Controller> loadControllerClass(ClassLoader classLoader, String className) {
+                    return null;
+                }
+
+                public Controller newInstance(ClassLoader classLoader, String className, Object args) {
+                    return null;
+                }
+            }
+        """.trimIndent()
+        )
+    )
+
+    private fun controllers() = (0 until controllerCount).flatMap { index ->
+        listOfNotNull(
+            JavaFileObjects.forSourceString(
+                "test.TestController$index", """
+                package test;
+
+                import com.bluelinelabs.conductor.Controller;
+                import com.bluelinelabs.conductor.ControllerArgs;
+                import com.lalafo.codegen.injection.InjectController;
+                import com.lalafo.codegen.injection.ControllerBundle;
+
+                public class TestController$index extends Controller {
+                    @InjectController
+                    TestController$index(Long foo, @ControllerBundle ControllerArgs arguments) {
+                        super(arguments);
+                    }
+                }
+            """.trimIndent()
+            ),
+            if (!withDelegates) null else controllerIndexEntry("test.TestController$index"),
+            if (!withDelegates) null else JavaFileObjects.forSourceString(
+                "test.TestController${index}_ControllerFactoryDelegate", """
+                package test;
+
+                import com.bluelinelabs.conductor.ControllerArgs;
+                import com.lalafo.codegen.utils.ControllerFactoryDelegate;
+
+                public final class TestController${index}_ControllerFactoryDelegate implements ControllerFactoryDelegate<TestController$index> {
+
+                    @Override
+                    public TestController$index newInstanceWithArguments(final Object instantiationArguments) {
+                        return new TestController$index(0L, (ControllerArgs) instantiationArguments);
+                    }
+                }
+            """.trimIndent()
+            )
+        )
+    }
+
+    private fun factory() = listOf(
+        JavaFileObjects.forSourceString(
+            "test.TestControllerFactory", """
+            package test;
+
+            import com.bluelinelabs.conductor.ControllerFactory;
+            import com.lalafo.codegen.factory.ConductorFactory;
+
+            @ConductorFactory
+            public class TestControllerFactory extends ControllerFactory { }
+        """.trimIndent()
+        )
+    )
+}
+
+/**
+ * The index entry the injection processor writes for the given controller. Controllers are discovered only through
+ * these entries, so tests without the injection processor have to provide them along with the delegates.
+ */
+internal fun controllerIndexEntry(controllerName: String): JavaFileObject {
+    val entryName = controllerName.replace("_", "__").replace('.', '_')
+    return JavaFileObjects.forSourceString(
+        "com.lalafo.codegen.index.$entryName", """
+        package com.lalafo.codegen.index;
+
+        import com.lalafo.codegen.utils.ControllerIndex;
+
+        @ControllerIndex("$controllerName")
+        public final class $entryName {
+            private $entryName() {
+            }
+        }
+    """.trimIndent()
+    )
+}
+
+/** Loads the classes produced by a [Compilation], so generated code can be executed in benchmarks. */
+internal class CompilationClassLoader(compilation: Compilation) : ClassLoader(CompilationClassLoader::class.java.classLoader) {
+
+    private val classes: Map<String, ByteArray> = compilation.generatedFiles()
+        .filter { it.kind == JavaFileObject.Kind.CLASS }
+        .associate { file ->
+            val name = file.toUri().path
+                .substringAfter("CLASS_OUTPUT/")
+                .removeSuffix(".class")
+                .replace('/', '.')
+            name to file.openInputStream().use { it.readBytes() }
+        }
+
+    override fun findClass(name: String): Class<*> {
+        val bytes = classes[name] ?: throw ClassNotFoundException(name)
+        return defineClass(name, bytes, 0, bytes.size)
+    }
+}
@@ -1352,4 +1352,50 @@ class ControllerInjectionProcessorTest {
             .and()
             .generatesSources(expected)
     }
+
+    @Test
+    fun indexEntry() {
+        val input = JavaFileObjects.forSourceString(
+            "test.Test_Controller", """
+            package test;
+            
+            import com.bluelinelabs.conductor.Controller;
+            import com.bluelinelabs.conductor.ControllerArgs;
+            import com.lalafo.codegen.injection.InjectController;
+            import com.lalafo.codegen.injection.ControllerBundle;
+            
+            public class Test_Controller {
+                public static class Test extends Controller {
+                    @InjectController
+                    Test(Long foo, @ControllerBundle ControllerArgs args) {
+                        super(args);
+                    }
+                }
+            }
+        """.trimIndent()
+        )
+
+        val expected = JavaFileObjects.forSourceString(
+            "com.lalafo.codegen.index.test_Test__Controller_Test", """
+            package com.lalafo.codegen.index;
+
+            import com.lalafo.codegen.utils.ControllerIndex;
+            import $GENERATED_TYPE;
+            
+            @ControllerIndex("test.Test_Controller.Test")
+            $GENERATED_ANNOTATION
+            public final class test_Test__Controller_Test {
+                private test_Test__Controller_Test() {
+                }
+            }
+        """
+        )
+
+        assertAbout(javaSources())
+            .that(listOf(controllerFile, controllerArgsFile, input))
+            .processedWith(ControllerInjectionProcessor())
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expected)
+    }
 }
\ No newline at end of file
@@ -116,9 +116,12 @@ public abstract class BaseGlideControllerSupport<T extends RequestManager> imple
         }
 
         for (Router router : controller.getChildRouters()) {
-          for (RouterTransaction transaction : router.getBackstack()) {
-            Controller c = transaction.controller();
-            collectRequestManagers(c, collected);
+          for (int i = 0; i < router.getBackstackSize(); i++) {
+            RouterTransaction transaction = router.getBackstackEntry(i);
+            // Controllers that have not been instantiated yet have no requests to manage
+            if (transaction.isControllerInstantiated()) {
+              collectRequestManagers(transaction.controller(), collected);
+            }
           }
         }
       }
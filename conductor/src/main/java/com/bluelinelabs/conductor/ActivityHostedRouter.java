@@ -36,6 +36,7 @@ public class ActivityHostedRouter extends Router {
 
     private LifecycleHandler lifecycleHandler;
     private final TransactionIndexer transactionIndexer = new TransactionIndexer();
+    private final ControllerIndex controllerIndex = new ControllerIndex();
 
     public final void setHost(@NonNull LifecycleHandler lifecycleHandler, @NonNull ViewGroup container) {
         if (this.lifecycleHandler != lifecycleHandler || this.container != container) {
@@ -140,6 +141,11 @@ public class ActivityHostedRouter extends Router {
         return transactionIndexer;
     }
 
+    @Override @NonNull
+    ControllerIndex getControllerIndex() {
+        return controllerIndex;
+    }
+
     @Override
     public void onContextAvailable() {
         super.onContextAvailable();
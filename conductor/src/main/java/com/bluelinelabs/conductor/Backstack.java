@@ -18,12 +18,14 @@ package com.bluelinelabs.conductor;
 
 import android.os.Bundle;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -32,7 +34,28 @@ class Backstack implements Iterable<RouterTransaction> {
 
     private static final String KEY_ENTRIES = "Backstack.entries";
 
-    private final Deque<RouterTransaction> backstack = new ArrayDeque<>();
+    // Ordered from root to top, so entries can be accessed by index without copying
+    private final ArrayList<RouterTransaction> backstack = new ArrayList<>();
+    private final List<RouterTransaction> readOnlyBackstack = Collections.unmodifiableList(backstack);
+    // Mirrors the controllers of the backstack so contains() doesn't have to scan it
+    private final Set<Controller> controllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
+
+    // Counts structural changes, so iterators can fail fast when the backstack changes underneath them
+    private int modCount;
+    @Nullable private Runnable onChangedListener;
+
+    /**
+     * Sets a listener that is run whenever entries are added to or removed from this backstack, or hibernated.
+     */
+    void setOnChangedListener(@Nullable Runnable onChangedListener) {
+        this.onChangedListener = onChangedListener;
+    }
+
+    private void notifyChanged() {
+        if (onChangedListener != null) {
+            onChangedListener.run();
+        }
+    }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean isEmpty() {
@@ -45,24 +68,46 @@ class Backstack implements Iterable<RouterTransaction> {
 
     @Nullable
     RouterTransaction root() {
-        return backstack.size() > 0 ? backstack.getLast() : null;
+        return backstack.size() > 0 ? backstack.get(0) : null;
+    }
+
+    /**
+     * Returns the entry at the given index, counted from the root.
+     */
+    @NonNull
+    RouterTransaction get(int index) {
+        return backstack.get(index);
     }
 
+    /**
+     * Returns a live read-only view of the backstack, ordered from root to top.
+     */
+    @NonNull
+    List<RouterTransaction> asList() {
+        return readOnlyBackstack;
+    }
+
+    /**
+     * Iterates from top to root.
+     */
     @Override @NonNull
     public Iterator<RouterTransaction> iterator() {
-        return backstack.iterator();
+        return new BackstackIterator(true);
     }
 
+    /**
+     * Iterates from root to top.
+     */
     @NonNull
     Iterator<RouterTransaction> reverseIterator() {
-        return backstack.descendingIterator();
+        return new BackstackIterator(false);
     }
 
     @NonNull
     List<RouterTransaction> popTo(@NonNull RouterTransaction transaction) {
         List<RouterTransaction> popped = new ArrayList<>();
         if (backstack.contains(transaction)) {
-            while (backstack.peek() != transaction) {
+            while (peek() != transaction) {
                 RouterTransaction poppedTransaction = pop();
                 popped.add(poppedTransaction);
             }
@@ -74,23 +119,62 @@ class Backstack implements Iterable<RouterTransaction> {
 
     @NonNull
     RouterTransaction pop() {
-        RouterTransaction popped = backstack.pop();
-        popped.controller.destroy();
+        if (backstack.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        RouterTransaction popped = backstack.remove(backstack.size() - 1);
+        modCount++;
+        Controller controller = popped.instantiatedController();
+        if (controller != null) {
+            controllers.remove(controller);
+            controller.destroy();
+        } else {
+            popped.setOnControllerInstantiatedListener(null);
+        }
+        notifyChanged();
         return popped;
     }
 
     @Nullable
     RouterTransaction peek() {
-        return backstack.peek();
+        return backstack.size() > 0 ? backstack.get(backstack.size() - 1) : null;
     }
 
     void push(@NonNull RouterTransaction transaction) {
-        backstack.push(transaction);
+        backstack.add(transaction);
+        modCount++;
+
+        Controller controller = transaction.instantiatedController();
+        if (controller != null) {
+            controllers.add(controller);
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Hibernates the controller of the passed transaction on this backstack, see
+     * {@link RouterTransaction#hibernate(RouterTransaction.OnControllerInstantiatedListener)}.
+     */
+    void hibernate(@NonNull RouterTransaction transaction, @Nullable RouterTransaction.OnControllerInstantiatedListener listener) {
+        Controller controller = transaction.instantiatedController();
+        if (controller != null) {
+            transaction.hibernate(listener);
+            controllers.remove(controller);
+            notifyChanged();
+        }
+    }
+
+    /**
+     * Called once the controller of a lazily restored or hibernated transaction on this backstack has been instantiated.
+     */
+    void onControllerInstantiated(@NonNull RouterTransaction transaction) {
+        controllers.add(transaction.controller());
     }
 
     @NonNull
     List<RouterTransaction> popAll() {
-        List<RouterTransaction> list = new ArrayList<>();
+        List<RouterTransaction> list = new ArrayList<>(backstack.size());
         while (!isEmpty()) {
             list.add(pop());
         }
@@ -99,35 +183,121 @@ class Backstack implements Iterable<RouterTransaction> {
 
     void setBackstack(@NonNull List<RouterTransaction> backstack) {
         this.backstack.clear();
+        modCount++;
+        controllers.clear();
         for (RouterTransaction transaction : backstack) {
-            this.backstack.push(transaction);
+            push(transaction);
         }
+        notifyChanged();
     }
 
     boolean contains(@NonNull Controller controller) {
-        for (RouterTransaction transaction : backstack) {
-            if (controller == transaction.controller) {
-                return true;
-            }
-        }
-        return false;
+        return controllers.contains(controller);
     }
 
     void saveInstanceState(@NonNull Bundle outState) {
         ArrayList<Bundle> entryBundles = new ArrayList<>(backstack.size());
-        for (RouterTransaction entry : backstack) {
-            entryBundles.add(entry.saveInstanceState());
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            entryBundles.add(backstack.get(i).saveInstanceState());
         }
 
         outState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
     }
 
-    void restoreInstanceState(@NonNull Bundle savedInstanceState) {
+    /**
+     * Restores the saved entries. If {@link Conductor#isLazyRestoreEnabled()}, only the entries that will be
+     * visible get their controller instantiated, the passed listener is notified when one of the others is.
+     */
+    void restoreInstanceState(@NonNull Bundle savedInstanceState, @Nullable RouterTransaction.OnControllerInstantiatedListener listener) {
         ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
-        if (entryBundles != null) {
+        if (entryBundles == null) {
+            return;
+        }
+
+        if (!Conductor.isLazyRestoreEnabled()) {
             Collections.reverse(entryBundles);
             for (Bundle transactionBundle : entryBundles) {
-                backstack.push(new RouterTransaction(transactionBundle));
+                push(new RouterTransaction(transactionBundle));
+            }
+            return;
+        }
+
+        // Entries are saved from top to root, so visibility can be decided while restoring them
+        RouterTransaction[] transactions = new RouterTransaction[entryBundles.size()];
+        boolean visible = true;
+        for (int i = 0; i < transactions.length; i++) {
+            RouterTransaction transaction = new RouterTransaction(entryBundles.get(i), !visible);
+            if (visible) {
+                ControllerChangeHandler pushChangeHandler = transaction.pushChangeHandler();
+                visible = pushChangeHandler != null && !pushChangeHandler.removesFromViewOnPush();
+            } else {
+                transaction.setOnControllerInstantiatedListener(listener);
+            }
+            transactions[transactions.length - 1 - i] = transaction;
+        }
+
+        for (RouterTransaction transaction : transactions) {
+            push(transaction);
+        }
+    }
+
+    /**
+     * Index based iterator that keeps the controller set in sync when transactions are removed through it. Like the
+     * iterators of the JDK collections, it throws a {@link ConcurrentModificationException} once the backstack has
+     * been changed by other means.
+     */
+    private final class BackstackIterator implements Iterator<RouterTransaction> {
+
+        private final boolean fromTop;
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        BackstackIterator(boolean fromTop) {
+            this.fromTop = fromTop;
+            next = fromTop ? backstack.size() - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return fromTop ? next >= 0 : next < backstack.size();
+        }
+
+        @Override
+        public RouterTransaction next() {
+            checkForModification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next += fromTop ? -1 : 1;
+            return backstack.get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkForModification();
+
+            RouterTransaction removed = backstack.remove(last);
+            expectedModCount = ++modCount;
+            Controller controller = removed.instantiatedController();
+            if (controller != null) {
+                controllers.remove(controller);
+            }
+            notifyChanged();
+            if (!fromTop) {
+                next = last;
+            }
+            last = -1;
+        }
+
+        private void checkForModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
             }
         }
     }
@@ -19,9 +19,18 @@ package com.bluelinelabs.conductor;
 import android.os.Bundle;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.internal.CounterInstanceIdGenerator;
 import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.ThreadUtils;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
@@ -33,7 +42,30 @@ import androidx.fragment.app.FragmentActivity;
 public final class Conductor {
 
     @NonNull
-    private static ControllerFactory controllerFactory = new ControllerFactory();
+    private static volatile ControllerFactory controllerFactory = new ControllerFactory();
+
+    @NonNull
+    private static volatile InstanceIdGenerator instanceIdGenerator = new CounterInstanceIdGenerator();
+
+    private static volatile boolean lazyRestoreEnabled;
+
+    private static volatile boolean compactStateEncodingEnabled;
+
+    private static volatile int viewPoolSize = 3;
+
+    private static volatile boolean tracingEnabled;
+
+    @Nullable
+    private static volatile SavedStateStore savedStateStore;
+
+    @Nullable
+    private static volatile NavigationMetrics navigationMetrics;
+
+    @Nullable
+    private static Executor prewarmExecutor;
+
+    @Nullable
+    private static Executor inflationExecutor;
 
     private Conductor() {}
 
@@ -72,4 +104,223 @@ public final class Conductor {
         ThreadUtils.ensureMainThread();
         controllerFactory = factory;
     }
+
+    @NonNull @AnyThread
+    public static InstanceIdGenerator getInstanceIdGenerator() {
+        return instanceIdGenerator;
+    }
+
+    /**
+     * Replaces the generator used to assign instance ids to newly created {@link Controller}s. Should be called
+     * before any controller is created, e.g. in {@code Application.onCreate}.
+     *
+     * @param generator The generator to use from now on.
+     */
+    @AnyThread
+    public static void setInstanceIdGenerator(@NonNull InstanceIdGenerator generator) {
+        instanceIdGenerator = generator;
+    }
+
+    @AnyThread
+    public static boolean isLazyRestoreEnabled() {
+        return lazyRestoreEnabled;
+    }
+
+    /**
+     * Enables lazy restoring of backstacks. When enabled, only the {@link Controller}s that are visible after a
+     * restore are instantiated right away. All others keep just their saved state until they become visible or
+     * are accessed, e.g. through {@link RouterTransaction#controller()} or a lookup by tag or instance id.
+     * <p>
+     * Controllers that are instantiated later don't receive the activity lifecycle callbacks, like
+     * {@link Controller#onActivityStarted(android.app.Activity)}, that happened while they only existed as saved
+     * state. Controllers hosted by child routers of such a controller can only be found once it has been
+     * instantiated. Should be called before any router is restored, e.g. in {@code Application.onCreate}.
+     *
+     * @param enabled Whether backstacks should be restored lazily.
+     */
+    @AnyThread
+    public static void setLazyRestoreEnabled(boolean enabled) {
+        lazyRestoreEnabled = enabled;
+    }
+
+    @AnyThread
+    public static boolean isCompactStateEncodingEnabled() {
+        return compactStateEncodingEnabled;
+    }
+
+    /**
+     * Enables a compact binary encoding of saved router state. When enabled, each root {@link Router} saves its
+     * backstack, including all child routers, as a single byte array with interned keys, class names and change
+     * handler descriptors instead of nested Bundles. State that can't be encoded, e.g. because it holds binder
+     * objects, is saved as before. Both forms can always be restored, regardless of this setting.
+     *
+     * @param enabled Whether router state should be saved in the compact encoding.
+     */
+    @AnyThread
+    public static void setCompactStateEncodingEnabled(boolean enabled) {
+        compactStateEncodingEnabled = enabled;
+    }
+
+    @AnyThread
+    public static int getViewPoolSize() {
+        return viewPoolSize;
+    }
+
+    /**
+     * Sets how many released views are kept per Controller class for Controllers using
+     * {@link Controller.RetainViewMode#POOLED}. Each root {@link Router} keeps its own pool, which is cleared when
+     * the system is running low on memory and when the Activity is destroyed. Defaults to 3.
+     *
+     * @param size The maximum number of pooled views per Controller class, or 0 to disable pooling.
+     */
+    @AnyThread
+    public static void setViewPoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("View pool size must not be negative, was " + size);
+        }
+        viewPoolSize = size;
+    }
+
+    @Nullable @AnyThread
+    public static SavedStateStore getSavedStateStore() {
+        return savedStateStore;
+    }
+
+    /**
+     * Sets the store the state of {@link Router}s attached through
+     * {@link #attachRouter(FragmentActivity, ViewGroup, Bundle)} is written to when the Activity saves its instance
+     * state, instead of the instance state itself. Should be called before any router is attached, e.g. in
+     * {@code Application.onCreate}, so restored Activities can find their state.
+     *
+     * @param store The store to use, or {@code null} to put router state into the Activity's instance state.
+     */
+    @AnyThread
+    public static void setSavedStateStore(@Nullable SavedStateStore store) {
+        savedStateStore = store;
+    }
+
+    @AnyThread
+    public static boolean isTracingEnabled() {
+        return tracingEnabled;
+    }
+
+    /**
+     * Enables {@link android.os.Trace} sections around Conductor's work on the main thread, named with the
+     * Controller class involved: view inflation, attach and detach, change handler execution, setting the
+     * backstack and saving and restoring state. Each change also gets an async section that spans it from start
+     * to completion. Disabled by default, in which case only this flag is checked.
+     *
+     * @param enabled Whether trace sections should be written.
+     */
+    @AnyThread
+    public static void setTracingEnabled(boolean enabled) {
+        tracingEnabled = enabled;
+    }
+
+    @Nullable @AnyThread
+    public static NavigationMetrics getNavigationMetrics() {
+        return navigationMetrics;
+    }
+
+    /**
+     * Sets the metrics navigations of all {@link Router}s are reported to, unless a Router has metrics of its own,
+     * see {@link Router#setNavigationMetrics(NavigationMetrics)}. Navigations aren't timed at all while no metrics
+     * are set, which is the default.
+     *
+     * @param metrics The metrics to report to, or {@code null} to stop reporting.
+     */
+    @AnyThread
+    public static void setNavigationMetrics(@Nullable NavigationMetrics metrics) {
+        navigationMetrics = metrics;
+    }
+
+    /**
+     * Starts loading the given controller classes and resolving how to instantiate them on a background thread.
+     * Calling this early, e.g. in {@code Application.onCreate}, takes this work off the main thread before the
+     * first call to {@link #attachRouter(FragmentActivity, ViewGroup, Bundle)} restores a backstack.
+     * <p>
+     * The {@link ControllerFactory} set at the time of this call is used for pre-warming, see
+     * {@link ControllerFactory#prewarm(Class)}.
+     *
+     * @param controllerClasses The controller classes to pre-warm.
+     * @return A task that reports which classes have been pre-warmed.
+     */
+    @NonNull @AnyThread
+    public static PrewarmTask prewarm(@NonNull Collection<Class<? extends Controller>> controllerClasses) {
+        return startPrewarm(new PrewarmTask(controllerFactory, Conductor.class.getClassLoader(), controllerClasses), getPrewarmExecutor());
+    }
+
+    /**
+     * Same as {@link #prewarm(Collection)}, but takes class names, e.g. ones recorded from a previous session.
+     * Names of {@link ControllerChangeHandler} subclasses are accepted as well, in which case the handler class is
+     * loaded and initialized.
+     *
+     * @param classLoader The class loader used to load the given classes.
+     * @param classNames The fully qualified names of controller or change handler classes to pre-warm.
+     * @return A task that reports which classes have been pre-warmed.
+     */
+    @NonNull @AnyThread
+    public static PrewarmTask prewarm(@NonNull ClassLoader classLoader, @NonNull Collection<String> classNames) {
+        return prewarm(classLoader, classNames, getPrewarmExecutor());
+    }
+
+    /**
+     * Same as {@link #prewarm(ClassLoader, Collection)}, but runs on the given executor.
+     */
+    @NonNull @AnyThread
+    public static PrewarmTask prewarm(@NonNull ClassLoader classLoader, @NonNull Collection<String> classNames, @NonNull Executor executor) {
+        return startPrewarm(new PrewarmTask(controllerFactory, classLoader, classNames), executor);
+    }
+
+    @NonNull
+    private static PrewarmTask startPrewarm(@NonNull PrewarmTask task, @NonNull Executor executor) {
+        task.start(executor);
+        return task;
+    }
+
+    @NonNull
+    private static synchronized Executor getPrewarmExecutor() {
+        if (prewarmExecutor == null) {
+            // Single background thread that goes away once there is nothing left to pre-warm
+            prewarmExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor-prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return prewarmExecutor;
+    }
+
+    /**
+     * Sets the executor views of {@link Controller}s with a {@link Controller.ViewBuilder} are built on, see
+     * {@link Controller#onCreateViewBuilder()}. Defaults to a single background thread.
+     *
+     * @param executor The executor to use, or {@code null} to use the default one.
+     */
+    @AnyThread
+    public static synchronized void setInflationExecutor(@Nullable Executor executor) {
+        inflationExecutor = executor;
+    }
+
+    /**
+     * Returns the executor views of {@link Controller}s with a {@link Controller.ViewBuilder} are built on.
+     */
+    @NonNull
+    static synchronized Executor getInflationExecutor() {
+        if (inflationExecutor == null) {
+            // Views are built one at a time, in the order the changes were started
+            inflationExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor-inflate");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return inflationExecutor;
+    }
 }
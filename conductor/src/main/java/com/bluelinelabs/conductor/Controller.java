@@ -28,27 +28,29 @@ import android.os.Bundle;
 import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.internal.ArrayUtils;
 import com.bluelinelabs.conductor.internal.ClassUtils;
 import com.bluelinelabs.conductor.internal.RouterRequiringFunc;
+import com.bluelinelabs.conductor.internal.TraceUtils;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler.ViewAttachListener;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
 
 import androidx.annotation.IdRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 /**
  * A Controller manages portions of the UI. It is similar to an Activity or Fragment in that it manages its
@@ -74,6 +76,8 @@ public abstract class Controller {
   private static final String KEY_RETAIN_VIEW_MODE = "Controller.retainViewMode";
   public static final String KEY_CONTROLLER_ARGS = "Controller.controllerArgs";
 
+  private static final LifecycleListener[] NO_LIFECYCLE_LISTENERS = new LifecycleListener[0];
+
   @NonNull protected final Bundle args;
 
   @Nullable private final ControllerArgs controllerArgs;
@@ -83,6 +87,7 @@ public abstract class Controller {
   Bundle viewState;
   private Bundle savedInstanceState;
   boolean isBeingDestroyed;
+  private boolean hibernating;
   private boolean destroyed;
   private boolean attached;
   boolean viewIsAttached;
@@ -101,13 +106,20 @@ public abstract class Controller {
   private ControllerChangeHandler overriddenPopHandler;
   private RetainViewMode retainViewMode = RetainViewMode.RELEASE_DETACH;
   private ViewAttachHandler viewAttachHandler;
-  private final List<ControllerHostedRouter> childRouters = new ArrayList<>();
-  private final List<LifecycleListener> lifecycleListeners = new ArrayList<>();
+  final List<ControllerHostedRouter> childRouters = new ArrayList<>();
+  private LifecycleListener[] lifecycleListeners = NO_LIFECYCLE_LISTENERS;
   private final ArrayList<String> requestedPermissions = new ArrayList<>();
   private final ArrayList<RouterRequiringFunc> onRouterSetListeners = new ArrayList<>();
   private WeakReference<View> destroyedView;
+  private boolean destroyedViewPooled;
+  // When the current navigation to this Controller started, or 0 if it isn't timed
+  private long navigationStartNanos;
+  private boolean navigationIsPush;
   private boolean isPerformingExitTransition;
   private boolean isContextAvailable;
+  private boolean savedStateCacheEnabled;
+  @Nullable private Bundle cachedSavedState;
+  @Nullable private View asyncBuiltView;
 
   @Deprecated
   @NonNull
@@ -115,8 +127,7 @@ public abstract class Controller {
     final String className = bundle.getString(KEY_CLASS_NAME);
     //noinspection ConstantConditions
     Class cls = ClassUtils.classForName(className, false);
-    Constructor[] constructors = cls.getConstructors();
-    Constructor bundleConstructor = getBundleConstructor(constructors);
+    ControllerFactory.Constructors constructors = ControllerFactory.getConstructors(cls);
 
     Bundle args = bundle.getBundle(KEY_ARGS);
     if (args != null) {
@@ -125,11 +136,11 @@ public abstract class Controller {
 
     Controller controller;
     try {
-      if (bundleConstructor != null) {
-        controller = (Controller)bundleConstructor.newInstance(args);
+      if (constructors.bundleConstructor != null) {
+        controller = (Controller)constructors.bundleConstructor.newInstance(args);
       } else {
         //noinspection ConstantConditions
-        controller = (Controller)getDefaultConstructor(constructors).newInstance();
+        controller = (Controller)constructors.defaultConstructor.newInstance();
 
         // Restore the args that existed before the last process death
         if (args != null) {
@@ -177,6 +188,15 @@ public abstract class Controller {
     return  controller;
   }
 
+  /**
+   * Reads the instance id from the saved state of a controller without instantiating it.
+   */
+  @NonNull
+  static String instanceIdFrom(@NonNull Bundle controllerBundle) {
+    //noinspection ConstantConditions
+    return controllerBundle.getString(KEY_INSTANCE_ID);
+  }
+
   /**
    * Convenience constructor for use when no arguments are needed.
    */
@@ -192,7 +212,7 @@ public abstract class Controller {
   protected Controller(@Nullable Bundle args) {
     this.args = args != null ? args : new Bundle(getClass().getClassLoader());
     this.controllerArgs = null;
-    instanceId = UUID.randomUUID().toString();
+    instanceId = Conductor.getInstanceIdGenerator().nextInstanceId();
     ensureRequiredConstructor();
   }
 
@@ -206,7 +226,7 @@ public abstract class Controller {
   protected Controller(@Nullable ControllerArgs controllerArgs) {
     this.args = new Bundle(getClass().getClassLoader());
     this.controllerArgs = controllerArgs;
-    instanceId = UUID.randomUUID().toString();
+    instanceId = Conductor.getInstanceIdGenerator().nextInstanceId();
 
     instantiatedWithControllerArgs = true;
   }
@@ -225,6 +245,30 @@ public abstract class Controller {
    */
   @NonNull
   protected abstract View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState);
+
+  /**
+   * Opts this Controller into asynchronous inflation. When a {@link ViewBuilder} is returned, it builds this
+   * Controller's view instead of {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)}. During a push or pop,
+   * the builder runs on a background thread and the change starts once the view is ready. If the view is needed
+   * right away, e.g. because another change arrives first, it is built on the main thread instead.
+   * Once built, the view is passed to {@link #onBindView(View, Bundle)} on the main thread.
+   */
+  @Nullable
+  protected ViewBuilder onCreateViewBuilder() {
+    return null;
+  }
+
+  /**
+   * Called on the main thread with a view that was built by the {@link ViewBuilder} returned from
+   * {@link #onCreateViewBuilder()} or recycled from another instance using {@link RetainViewMode#POOLED},
+   * in place of {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)}. This should contain the binding and
+   * state restoration code. Recycled views still hold whatever the previous Controller bound to them.
+   *
+   * @param view           The view that was built or recycled for this Controller.
+   * @param savedViewState A bundle for the view's state, which would have been created in {@link #onSaveViewState(View, Bundle)},
+   *                       or {@code null} if no saved state exists.
+   */
+  protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) { }
   /**
    * Returns the {@link Router} object that can be used for pushing or popping other Controllers
    */
@@ -294,6 +338,8 @@ public abstract class Controller {
         childRouter = new ControllerHostedRouter(container.getId(), tag);
         childRouter.setHost(this, container);
         childRouters.add(childRouter);
+        childRouter.setOwnerController(this);
+        invalidateSavedStateCache();
 
         if (isPerformingExitTransition) {
           childRouter.setDetachFrozen(true);
@@ -328,6 +374,8 @@ public abstract class Controller {
       currentRouter = new ControllerHostedRouter(container.getId(), tag);
       currentRouter.setHost(this, container);
       childRouters.add(currentRouter);
+      currentRouter.setOwnerController(this);
+      invalidateSavedStateCache();
 
       if (isPerformingExitTransition) {
         currentRouter.setDetachFrozen(true);
@@ -368,6 +416,8 @@ public abstract class Controller {
    */
   public final void removeChildRouter(@NonNull Router childRouter) {
     if ((childRouter instanceof ControllerHostedRouter) && childRouters.remove(childRouter)) {
+      invalidateSavedStateCache();
+      ((ControllerHostedRouter)childRouter).removeOwnerController();
       childRouter.destroy(true);
     }
   }
@@ -493,6 +543,7 @@ public abstract class Controller {
     }
 
     targetInstanceId = target != null ? target.getInstanceId() : null;
+    invalidateSavedStateCache();
   }
 
   /**
@@ -689,6 +740,7 @@ public abstract class Controller {
   @TargetApi(Build.VERSION_CODES.M)
   public final void requestPermissions(@NonNull final String[] permissions, final int requestCode) {
     requestedPermissions.addAll(Arrays.asList(permissions));
+    invalidateSavedStateCache();
 
     executeWithRouter(new RouterRequiringFunc() {
       @Override public void execute() { router.requestPermissions(instanceId, permissions, requestCode); }
@@ -723,7 +775,7 @@ public abstract class Controller {
     List<RouterTransaction> childTransactions = new ArrayList<>();
 
     for (ControllerHostedRouter childRouter : childRouters) {
-      childTransactions.addAll(childRouter.getBackstack());
+      childTransactions.addAll(childRouter.getBackstackView());
     }
 
     Collections.sort(childTransactions, new Comparator<RouterTransaction>() {
@@ -734,9 +786,9 @@ public abstract class Controller {
     });
 
     for (RouterTransaction transaction : childTransactions) {
-      Controller childController = transaction.controller;
+      Controller childController = transaction.instantiatedController();
 
-      if (childController.isAttached() && childController.getRouter().handleBack()) {
+      if (childController != null && childController.isAttached() && childController.getRouter().handleBack()) {
         return true;
       }
     }
@@ -750,8 +802,9 @@ public abstract class Controller {
    * @param lifecycleListener The listener
    */
   public final void addLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-    if (!lifecycleListeners.contains(lifecycleListener)) {
-      lifecycleListeners.add(lifecycleListener);
+    if (!ArrayUtils.contains(lifecycleListeners, lifecycleListener)) {
+      lifecycleListeners = ArrayUtils.append(lifecycleListeners, lifecycleListener);
+      invalidateSavedStateCache();
     }
   }
 
@@ -761,7 +814,11 @@ public abstract class Controller {
    * @param lifecycleListener The listener to be removed
    */
   public final void removeLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-    lifecycleListeners.remove(lifecycleListener);
+    LifecycleListener[] remaining = ArrayUtils.remove(lifecycleListeners, lifecycleListener);
+    if (remaining != lifecycleListeners) {
+      lifecycleListeners = remaining;
+      invalidateSavedStateCache();
+    }
   }
 
   /**
@@ -778,7 +835,8 @@ public abstract class Controller {
    */
   public void setRetainViewMode(@NonNull RetainViewMode retainViewMode) {
     this.retainViewMode = retainViewMode != null ? retainViewMode : RetainViewMode.RELEASE_DETACH;
-    if (this.retainViewMode == RetainViewMode.RELEASE_DETACH && !attached) {
+    invalidateSavedStateCache();
+    if (this.retainViewMode != RetainViewMode.RETAIN_DETACH && !attached) {
       removeViewReference();
     }
   }
@@ -798,6 +856,7 @@ public abstract class Controller {
    */
   public void overridePushHandler(@Nullable ControllerChangeHandler overriddenPushHandler) {
     this.overriddenPushHandler = overriddenPushHandler;
+    invalidateSavedStateCache();
   }
 
   /**
@@ -815,14 +874,59 @@ public abstract class Controller {
    */
   public void overridePopHandler(@Nullable ControllerChangeHandler overriddenPopHandler) {
     this.overriddenPopHandler = overriddenPopHandler;
+    invalidateSavedStateCache();
+  }
+
+  /**
+   * Enables caching of the Bundle built when this Controller's instance state is saved. As long as nothing changes,
+   * later saves reuse it instead of calling {@link #onSaveInstanceState(Bundle)} and saving all child routers again.
+   * Changes made through Conductor, such as attaching, navigating in child routers or overriding change handlers,
+   * drop the cache automatically. Controllers enabling this must call {@link #invalidateSavedState()} whenever
+   * anything they save in {@link #onSaveInstanceState(Bundle)} or their args change. Attached Controllers, and
+   * Controllers with a child that doesn't cache its state, are always saved again.
+   *
+   * @param enabled Whether or not this Controller's saved state may be cached
+   */
+  public final void setSavedStateCacheEnabled(boolean enabled) {
+    savedStateCacheEnabled = enabled;
+    invalidateSavedStateCache();
+  }
+
+  /**
+   * Returns whether or not caching of this Controller's saved state has been enabled.
+   */
+  public final boolean isSavedStateCacheEnabled() {
+    return savedStateCacheEnabled;
+  }
+
+  /**
+   * Drops this Controller's cached saved state, so it is saved again the next time the state of its
+   * {@link Router} is saved. See {@link #setSavedStateCacheEnabled(boolean)}.
+   */
+  public final void invalidateSavedState() {
+    invalidateSavedStateCache();
+  }
+
+  /**
+   * Drops the cached saved state of this Controller and of all the Controllers hosting it, as their saved
+   * state contains this one.
+   */
+  final void invalidateSavedStateCache() {
+    Controller controller = this;
+    while (controller != null) {
+      controller.cachedSavedState = null;
+      controller = controller.router != null ? controller.router.getOwnerController() : null;
+    }
   }
 
   final void setNeedsAttach(boolean needsAttach) {
     this.needsAttach = needsAttach;
+    invalidateSavedStateCache();
   }
 
   final void prepareForHostDetach() {
     needsAttach = needsAttach || attached;
+    invalidateSavedStateCache();
 
     for (ControllerHostedRouter router : childRouters) {
       router.prepareForHostDetach();
@@ -839,6 +943,7 @@ public abstract class Controller {
 
   final void requestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
     requestedPermissions.removeAll(Arrays.asList(permissions));
+    invalidateSavedStateCache();
     onRequestPermissionsResult(requestCode, permissions, grantResults);
   }
 
@@ -861,16 +966,14 @@ public abstract class Controller {
     final Context context = router != null ? router.getActivity(): null;
 
     if (context != null && !isContextAvailable) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preContextAvailable(this);
       }
 
       isContextAvailable = true;
       onContextAvailable(context);
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postContextAvailable(this, context);
       }
     }
@@ -937,22 +1040,34 @@ public abstract class Controller {
     }
 
     if (isContextAvailable) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preContextUnavailable(this, activity);
       }
 
       isContextAvailable = false;
       onContextUnavailable();
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postContextUnavailable(this);
       }
     }
   }
 
   void attach(@NonNull View view) {
+    if (!Conductor.isTracingEnabled()) {
+      performAttach(view);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.attach", getClass());
+    try {
+      performAttach(view);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performAttach(@NonNull View view) {
     attachedToUnownedParent = router == null || view == null || view.getParent() != router.container;
     if (attachedToUnownedParent || isBeingDestroyed) {
       return;
@@ -967,25 +1082,25 @@ public abstract class Controller {
 
     hasSavedViewState = false;
 
-    List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.preAttach(this, view);
     }
 
     attached = true;
     needsAttach = router.isActivityStopped;
+    invalidateSavedStateCache();
 
     onAttach(view);
 
-    listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.postAttach(Controller.this, view);
     }
 
     for (ControllerHostedRouter childRouter : childRouters) {
       for (RouterTransaction childTransaction : childRouter.backstack) {
-        if (childTransaction.controller.awaitingParentAttach) {
-          childTransaction.controller.attach(childTransaction.controller.view);
+        Controller childController = childTransaction.instantiatedController();
+        if (childController != null && childController.awaitingParentAttach) {
+          childController.attach(childController.view);
         }
       }
 
@@ -994,28 +1109,41 @@ public abstract class Controller {
   }
 
   void detach(@NonNull View view, boolean forceViewRefRemoval, boolean blockViewRefRemoval) {
+    if (!Conductor.isTracingEnabled()) {
+      performDetach(view, forceViewRefRemoval, blockViewRefRemoval);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.detach", getClass());
+    try {
+      performDetach(view, forceViewRefRemoval, blockViewRefRemoval);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performDetach(@NonNull View view, boolean forceViewRefRemoval, boolean blockViewRefRemoval) {
     if (!attachedToUnownedParent) {
       for (ControllerHostedRouter router : childRouters) {
         router.prepareForHostDetach();
       }
     }
 
-    final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || retainViewMode == RetainViewMode.RELEASE_DETACH || isBeingDestroyed);
+    final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || retainViewMode != RetainViewMode.RETAIN_DETACH || isBeingDestroyed);
 
     if (attached) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preDetach(this, view);
       }
 
       attached = false;
+      invalidateSavedStateCache();
 
       if (!awaitingParentAttach) {
         onDetach(view);
       }
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postDetach(this, view);
       }
     }
@@ -1031,8 +1159,7 @@ public abstract class Controller {
         saveViewState(view);
       }
 
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preDestroyView(this, view);
       }
 
@@ -1045,16 +1172,23 @@ public abstract class Controller {
       if (isBeingDestroyed) {
         destroyedView = new WeakReference<>(view);
       }
+      View releasedView = view;
       view = null;
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postDestroyView(this);
       }
 
       for (ControllerHostedRouter childRouter : childRouters) {
         childRouter.removeHost();
       }
+
+      if (retainViewMode == RetainViewMode.POOLED && childRouters.isEmpty() && router != null) {
+        boolean pooled = router.getViewPool().release(getClass(), releasedView);
+        if (isBeingDestroyed) {
+          destroyedViewPooled = pooled;
+        }
+      }
     }
 
     if (isBeingDestroyed) {
@@ -1063,27 +1197,65 @@ public abstract class Controller {
   }
 
   final View inflate(@NonNull ViewGroup parent) {
+    if (!Conductor.isTracingEnabled()) {
+      return performInflate(parent);
+    }
+
+    TraceUtils.beginSection("Conductor.inflate", getClass());
+    try {
+      return performInflate(parent);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private View performInflate(@NonNull ViewGroup parent) {
     if (view != null && view.getParent() != null && view.getParent() != parent) {
       detach(view, true, false);
       removeViewReference();
     }
 
     if (view == null) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preCreateView(this);
       }
 
-      view = onCreateView(LayoutInflater.from(parent.getContext()), parent, viewState == null ? null : viewState.getBundle(KEY_VIEW_STATE_BUNDLE));
+      Bundle savedViewState = viewState == null ? null : viewState.getBundle(KEY_VIEW_STATE_BUNDLE);
+      View recycledView = asyncBuiltView;
+      asyncBuiltView = null;
+      if (recycledView == null && retainViewMode == RetainViewMode.POOLED) {
+        recycledView = router.getViewPool().acquire(getClass(), parent.getContext());
+      }
+
+      ViewBuilder viewBuilder = recycledView == null ? onCreateViewBuilder() : null;
+      if (recycledView != null) {
+        view = recycledView;
+        onBindView(view, savedViewState);
+      } else if (viewBuilder != null) {
+        view = viewBuilder.build(LayoutInflater.from(parent.getContext()), parent);
+        onBindView(view, savedViewState);
+      } else if (Conductor.isTracingEnabled()) {
+        TraceUtils.beginSection("Conductor.onCreateView", getClass());
+        try {
+          view = onCreateView(LayoutInflater.from(parent.getContext()), parent, savedViewState);
+        } finally {
+          TraceUtils.endSection();
+        }
+      } else {
+        view = onCreateView(LayoutInflater.from(parent.getContext()), parent, savedViewState);
+      }
       if (view == parent) {
         throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
       }
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postCreateView(this, view);
       }
 
+      if (navigationStartNanos != 0) {
+        recordNavigationPhase(NavigationMetrics.Phase.CREATE_VIEW);
+      }
+
       restoreViewState(view);
 
       viewAttachHandler = new ViewAttachHandler(new ViewAttachListener() {
@@ -1119,6 +1291,47 @@ public abstract class Controller {
     return view;
   }
 
+  /**
+   * Hands over a view built on a background thread, which the next {@link #inflate(ViewGroup)} uses.
+   */
+  final void setAsyncBuiltView(@NonNull View view) {
+    asyncBuiltView = view;
+  }
+
+  /**
+   * Returns whether the next {@link #inflate(ViewGroup)} can reuse a view without building a new one.
+   */
+  final boolean hasRecycledView() {
+    return asyncBuiltView != null || (retainViewMode == RetainViewMode.POOLED && router != null && router.getViewPool().hasView(getClass()));
+  }
+
+  /**
+   * Releases this controller after the {@link PreparedTransaction} it was prepared with has been discarded without
+   * being pushed. Drops the view that was inflated ahead of time and makes the context unavailable again, so the
+   * controller doesn't hold on to the Activity. Pushing it later sets its router again.
+   */
+  final void discardPreparation() {
+    if (!attached && view != null && view.getParent() == null) {
+      removeViewReference();
+    }
+
+    if (isContextAvailable) {
+      Activity activity = getActivity();
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
+        lifecycleListener.preContextUnavailable(this, activity);
+      }
+
+      isContextAvailable = false;
+      onContextUnavailable();
+
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
+        lifecycleListener.postContextUnavailable(this);
+      }
+    }
+
+    router = null;
+  }
+
   private void restoreChildControllerHosts() {
     for (ControllerHostedRouter childRouter : childRouters) {
       if (!childRouter.hasHost()) {
@@ -1134,23 +1347,20 @@ public abstract class Controller {
 
   private void performDestroy() {
     if (isContextAvailable) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preContextUnavailable(this, getActivity());
       }
 
       isContextAvailable = false;
       onContextUnavailable();
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postContextUnavailable(this);
       }
     }
 
     if (!destroyed) {
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.preDestroy(this);
       }
 
@@ -1160,8 +1370,7 @@ public abstract class Controller {
 
       parentController = null;
 
-      listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.postDestroy(this);
       }
     }
@@ -1171,10 +1380,34 @@ public abstract class Controller {
     destroy(false);
   }
 
+  /**
+   * Destroys this controller after its state has been saved by a {@link HibernationPolicy}. Unlike {@link #destroy()},
+   * activity results stay registered, as the controller restored from that state keeps the same instance id. The
+   * same goes for its child controllers, a result for one of them restores this controller through the
+   * {@link ControllerIndex}.
+   */
+  final void hibernate() {
+    markHibernating();
+    destroy(false);
+  }
+
+  private void markHibernating() {
+    hibernating = true;
+
+    for (ControllerHostedRouter childRouter : childRouters) {
+      for (RouterTransaction transaction : childRouter.backstack) {
+        Controller childController = transaction.instantiatedController();
+        if (childController != null) {
+          childController.markHibernating();
+        }
+      }
+    }
+  }
+
   private void destroy(boolean removeViews) {
     isBeingDestroyed = true;
 
-    if (router != null) {
+    if (router != null && !hibernating) {
       router.unregisterForActivityResults(instanceId);
     }
 
@@ -1191,6 +1424,7 @@ public abstract class Controller {
 
   private void saveViewState(@NonNull View view) {
     hasSavedViewState = true;
+    invalidateSavedStateCache();
 
     viewState = new Bundle(getClass().getClassLoader());
 
@@ -1202,8 +1436,7 @@ public abstract class Controller {
     onSaveViewState(view, stateBundle);
     viewState.putBundle(KEY_VIEW_STATE_BUNDLE, stateBundle);
 
-    List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.onSaveViewState(this, viewState);
     }
   }
@@ -1217,14 +1450,30 @@ public abstract class Controller {
 
       restoreChildControllerHosts();
 
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.onRestoreViewState(this, viewState);
       }
     }
   }
 
   final Bundle saveInstanceState() {
+    if (cachedSavedState != null) {
+      return cachedSavedState;
+    }
+
+    if (!Conductor.isTracingEnabled()) {
+      return performSaveInstanceState();
+    }
+
+    TraceUtils.beginSection("Conductor.saveInstanceState", getClass());
+    try {
+      return performSaveInstanceState();
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private Bundle performSaveInstanceState() {
     if (!hasSavedViewState && view != null) {
       saveViewState(view);
     }
@@ -1249,28 +1498,55 @@ public abstract class Controller {
       outState.putBundle(KEY_OVERRIDDEN_POP_HANDLER, overriddenPopHandler.toBundle());
     }
 
+    // The view state of attached controllers can change at any time, so they are never cached
+    boolean cacheable = savedStateCacheEnabled && !attached;
+
     ArrayList<Bundle> childBundles = new ArrayList<>(childRouters.size());
     for (ControllerHostedRouter childRouter : childRouters) {
       Bundle routerBundle = new Bundle();
       childRouter.saveInstanceState(routerBundle);
       childBundles.add(routerBundle);
+
+      for (RouterTransaction childTransaction : childRouter.backstack) {
+        Controller childController = childTransaction.instantiatedController();
+        if (childController != null && childController.cachedSavedState == null) {
+          cacheable = false;
+        }
+      }
     }
     outState.putParcelableArrayList(KEY_CHILD_ROUTERS, childBundles);
 
     Bundle savedState = new Bundle(getClass().getClassLoader());
     onSaveInstanceState(savedState);
 
-    List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.onSaveInstanceState(this, savedState);
     }
 
     outState.putBundle(KEY_SAVED_STATE, savedState);
 
+    if (cacheable) {
+      cachedSavedState = outState;
+    }
+
     return outState;
   }
 
   private void restoreInstanceState(@NonNull Bundle savedInstanceState) {
+    if (!Conductor.isTracingEnabled()) {
+      performRestoreInstanceState(savedInstanceState);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.restoreInstanceState", getClass());
+    try {
+      performRestoreInstanceState(savedInstanceState);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performRestoreInstanceState(@NonNull Bundle savedInstanceState) {
     viewState = savedInstanceState.getBundle(KEY_VIEW_STATE);
     if (viewState != null) {
       viewState.setClassLoader(getClass().getClassLoader());
@@ -1289,6 +1565,7 @@ public abstract class Controller {
       ControllerHostedRouter childRouter = new ControllerHostedRouter();
       childRouter.restoreInstanceState(childBundle);
       childRouters.add(childRouter);
+      childRouter.setOwnerController(this);
     }
 
     this.savedInstanceState = savedInstanceState.getBundle(KEY_SAVED_STATE);
@@ -1302,8 +1579,7 @@ public abstract class Controller {
     if (savedInstanceState != null && router != null) {
       onRestoreInstanceState(savedInstanceState);
 
-      List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-      for (LifecycleListener lifecycleListener : listeners) {
+      for (LifecycleListener lifecycleListener : lifecycleListeners) {
         lifecycleListener.onRestoreInstanceState(this, savedInstanceState);
       }
 
@@ -1317,12 +1593,14 @@ public abstract class Controller {
       for (ControllerHostedRouter router : childRouters) {
         router.setDetachFrozen(true);
       }
+    } else if (navigationStartNanos != 0) {
+      recordNavigationPhase(NavigationMetrics.Phase.CHANGE_STARTED);
+      postNavigationFrameCallback();
     }
 
     onChangeStarted(changeHandler, changeType);
 
-    List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.onChangeStart(this, changeHandler, changeType);
     }
   }
@@ -1337,14 +1615,20 @@ public abstract class Controller {
 
     onChangeEnded(changeHandler, changeType);
 
-    List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-    for (LifecycleListener lifecycleListener : listeners) {
+    for (LifecycleListener lifecycleListener : lifecycleListeners) {
       lifecycleListener.onChangeEnd(this, changeHandler, changeType);
     }
 
+    if (changeType.isEnter && navigationStartNanos != 0) {
+      recordNavigationPhase(NavigationMetrics.Phase.CHANGE_ENDED);
+      navigationStartNanos = 0;
+    }
+
     if (isBeingDestroyed && !viewIsAttached && !attached && destroyedView != null) {
       View view = destroyedView.get();
-      if (router.container != null && view != null && view.getParent() == router.container) {
+      // A pooled view may already belong to another Controller
+      boolean recycled = destroyedViewPooled && view != null && !router.getViewPool().contains(getClass(), view);
+      if (router.container != null && view != null && !recycled && view.getParent() == router.container) {
         router.container.removeView(view);
       }
       destroyedView = null;
@@ -1353,6 +1637,39 @@ public abstract class Controller {
     changeHandler.onEnd();
   }
 
+  /**
+   * Starts timing a navigation to this Controller, which is reported to its Router's {@link NavigationMetrics}.
+   */
+  final void startNavigationTiming(boolean isPush) {
+    navigationStartNanos = System.nanoTime();
+    navigationIsPush = isPush;
+  }
+
+  private void recordNavigationPhase(@NonNull NavigationMetrics.Phase phase) {
+    NavigationMetrics metrics = router != null ? router.getNavigationMetrics() : null;
+    if (metrics != null) {
+      metrics.onNavigationPhase(getClass(), navigationIsPush, phase, System.nanoTime() - navigationStartNanos);
+    }
+  }
+
+  private void postNavigationFrameCallback() {
+    final NavigationMetrics metrics = router != null ? router.getNavigationMetrics() : null;
+    if (metrics == null) {
+      return;
+    }
+
+    // The navigation may have ended by the time the frame is drawn, so its timing is captured here
+    final Class<? extends Controller> controllerClass = getClass();
+    final boolean isPush = navigationIsPush;
+    final long startNanos = navigationStartNanos;
+    Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+      @Override
+      public void doFrame(long frameTimeNanos) {
+        metrics.onNavigationPhase(controllerClass, isPush, NavigationMetrics.Phase.FIRST_FRAME, System.nanoTime() - startNanos);
+      }
+    });
+  }
+
   final void setDetachFrozen(boolean frozen) {
     if (isDetachFrozen != frozen) {
       isDetachFrozen = frozen;
@@ -1376,38 +1693,42 @@ public abstract class Controller {
   }
 
   private void ensureRequiredConstructor() {
-    Constructor[] constructors = getClass().getConstructors();
-    if (getBundleConstructor(constructors) == null && getDefaultConstructor(constructors) == null) {
+    if (!ControllerFactory.getConstructors(getClass()).canRestore()) {
       throw new RuntimeException(getClass() + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
     }
   }
 
-  @Nullable
-  private static Constructor getDefaultConstructor(@NonNull Constructor[] constructors) {
-    for (Constructor constructor : constructors) {
-      if (constructor.getParameterTypes().length == 0) {
-        return constructor;
-      }
-    }
-    return null;
-  }
-
-  @Nullable
-  private static Constructor getBundleConstructor(@NonNull Constructor[] constructors) {
-    for (Constructor constructor : constructors) {
-      if (constructor.getParameterTypes().length == 1 && constructor.getParameterTypes()[0] == Bundle.class) {
-        return constructor;
-      }
-    }
-    return null;
-  }
-
   /** Modes that will influence when the Controller will allow its view to be destroyed */
   public enum RetainViewMode {
     /** The Controller will release its reference to its view as soon as it is detached. */
     RELEASE_DETACH,
     /** The Controller will retain its reference to its view when detached, but will still release the reference when a config change occurs. */
-    RETAIN_DETACH
+    RETAIN_DETACH,
+    /**
+     * The Controller will release its reference to its view as soon as it is detached, like {@link #RELEASE_DETACH}.
+     * Released views are kept in a bounded pool per Controller class on the root {@link Router}, see
+     * {@link Conductor#setViewPoolSize(int)}, and new views are taken from that pool when available. Recycled views
+     * are passed to {@link #onBindView(View, Bundle)} instead of {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)},
+     * so Controllers using this mode must fully bind their view there. Views of Controllers with child routers are
+     * not pooled.
+     */
+    POOLED
+  }
+
+  /**
+   * Builds a Controller's view, possibly on a background thread. See {@link Controller#onCreateViewBuilder()}.
+   */
+  public interface ViewBuilder {
+
+    /**
+     * Builds the view. This must not touch anything that is only safe to use on the main thread, like
+     * the Controller itself or the container.
+     *
+     * @param inflater  A LayoutInflater for the container's context.
+     * @param container The parent view the built view will be attached to, only to be used for LayoutParams.
+     */
+    @NonNull @WorkerThread
+    View build(@NonNull LayoutInflater inflater, @NonNull ViewGroup container);
   }
 
   /** Allows external classes to listen for lifecycle events in a Controller */
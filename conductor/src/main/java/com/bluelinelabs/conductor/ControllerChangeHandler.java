@@ -17,16 +17,26 @@
 package com.bluelinelabs.conductor;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.changehandler.SwapTabChangeHandler;
+import com.bluelinelabs.conductor.changehandler.VerticalChangeHandler;
 import com.bluelinelabs.conductor.internal.ClassUtils;
+import com.bluelinelabs.conductor.internal.TraceUtils;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -41,7 +51,44 @@ public abstract class ControllerChangeHandler {
     private static final String KEY_CLASS_NAME = "ControllerChangeHandler.className";
     private static final String KEY_SAVED_STATE = "ControllerChangeHandler.savedState";
 
-    static final Map<String, ChangeHandlerData> inProgressChangeHandlers = new HashMap<>();
+    private static final ConcurrentHashMap<String, ChangeHandlerFactory> factories = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Boolean> checkedConstructors = new ConcurrentHashMap<>();
+
+    // Only used on the main thread
+    private static int nextTraceCookie;
+
+    static {
+        registerFactory(SimpleSwapChangeHandler.class, new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler newInstance() {
+                return new SimpleSwapChangeHandler();
+            }
+        });
+        registerFactory(SwapTabChangeHandler.class, new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler newInstance() {
+                return new SwapTabChangeHandler();
+            }
+        });
+        registerFactory(FadeChangeHandler.class, new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler newInstance() {
+                return new FadeChangeHandler();
+            }
+        });
+        registerFactory(HorizontalChangeHandler.class, new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler newInstance() {
+                return new HorizontalChangeHandler();
+            }
+        });
+        registerFactory(VerticalChangeHandler.class, new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler newInstance() {
+                return new VerticalChangeHandler();
+            }
+        });
+    }
 
     boolean forceRemoveViewOnPush;
     private boolean hasBeenUsed;
@@ -124,18 +171,42 @@ public abstract class ControllerChangeHandler {
     }
 
     private void ensureDefaultConstructor() {
+        ensureDefaultConstructor(getClass());
+    }
+
+    static void ensureDefaultConstructor(@NonNull Class<?> cls) {
+        if (checkedConstructors.containsKey(cls) || factories.containsKey(cls.getName())) {
+            return;
+        }
+
         try {
-            getClass().getConstructor();
+            cls.getConstructor();
         } catch (Exception e) {
-            throw new RuntimeException(getClass() + " does not have a default constructor.");
+            throw new RuntimeException(cls + " does not have a default constructor.");
         }
+        checkedConstructors.put(cls, Boolean.TRUE);
+    }
+
+    /**
+     * Registers a factory used to create instances of the given change handler class when it is restored from
+     * a saved state, instead of instantiating it reflectively. The factory must return a new instance of exactly
+     * the given class each time it is called. Handlers without a registered factory are restored reflectively,
+     * which requires a public default constructor. All change handlers bundled with Conductor are registered
+     * by default.
+     *
+     * @param handlerClass The change handler class the factory creates.
+     * @param factory      The factory used to create new instances of the handler.
+     */
+    public static void registerFactory(@NonNull Class<? extends ControllerChangeHandler> handlerClass, @NonNull ChangeHandlerFactory factory) {
+        factories.put(handlerClass.getName(), factory);
     }
 
     @Nullable
     public static ControllerChangeHandler fromBundle(@Nullable Bundle bundle) {
         if (bundle != null) {
             String className = bundle.getString(KEY_CLASS_NAME);
-            ControllerChangeHandler changeHandler = ClassUtils.newInstance(className);
+            ChangeHandlerFactory factory = className != null ? factories.get(className) : null;
+            ControllerChangeHandler changeHandler = factory != null ? factory.newInstance() : ClassUtils.<ControllerChangeHandler>newInstance(className);
             //noinspection ConstantConditions
             changeHandler.restoreFromBundle(bundle.getBundle(KEY_SAVED_STATE));
             return changeHandler;
@@ -144,34 +215,71 @@ public abstract class ControllerChangeHandler {
         }
     }
 
-    static boolean completeHandlerImmediately(@NonNull String controllerInstanceId) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(controllerInstanceId);
+    static boolean completeHandlerImmediately(@NonNull Router router, @NonNull Controller controller) {
+        PendingInflation pendingInflation = router.pendingInflations.get(controller);
+        if (pendingInflation != null) {
+            // Builds the view right away, which starts the change so it can be completed below
+            pendingInflation.complete();
+        }
+
+        ChangeHandlerData changeHandlerData = router.inProgressChangeHandlers.remove(controller);
         if (changeHandlerData != null) {
             changeHandlerData.changeHandler.completeImmediately();
-            inProgressChangeHandlers.remove(controllerInstanceId);
             return true;
         }
         return false;
     }
 
-    static void abortOrComplete(@NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(toAbort.getInstanceId());
+    /**
+     * Cancels the change waiting for the view of the passed controller to be built, if any.
+     *
+     * @return Whether there was such a change.
+     */
+    static boolean cancelPendingInflation(@NonNull Router router, @NonNull Controller controller) {
+        PendingInflation pendingInflation = router.pendingInflations.get(controller);
+        if (pendingInflation != null) {
+            pendingInflation.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    static void abortOrComplete(@NonNull Router router, @NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
+        PendingInflation pendingInflation = router.pendingInflations.get(toAbort);
+        if (pendingInflation != null) {
+            if (pendingInflation.isPush) {
+                // The push never started, so its controller is simply never shown
+                pendingInflation.cancel();
+                return;
+            }
+            pendingInflation.complete();
+        }
+
+        ChangeHandlerData changeHandlerData = router.inProgressChangeHandlers.remove(toAbort);
         if (changeHandlerData != null) {
             if (changeHandlerData.isPush) {
                 changeHandlerData.changeHandler.onAbortPush(newChangeHandler, newController);
             } else {
                 changeHandlerData.changeHandler.completeImmediately();
             }
-
-            inProgressChangeHandlers.remove(toAbort.getInstanceId());
         }
     }
 
     static void executeChange(@NonNull final ChangeTransaction transaction) {
-        executeChange(transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+        if (!Conductor.isTracingEnabled()) {
+            executeChange(transaction.router, transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+            return;
+        }
+
+        TraceUtils.beginSection("Conductor.executeChange", traceClass(transaction.to, transaction.from));
+        try {
+            executeChange(transaction.router, transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+        } finally {
+            TraceUtils.endSection();
+        }
     }
 
-    private static void executeChange(@Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
+    private static void executeChange(@NonNull final Router router, @Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final ControllerChangeListener[] listeners) {
         if (container != null) {
             final ControllerChangeHandler handler;
             if (inHandler == null) {
@@ -185,68 +293,113 @@ public abstract class ControllerChangeHandler {
 
             if (from != null) {
                 if (isPush) {
-                    completeHandlerImmediately(from.getInstanceId());
+                    completeHandlerImmediately(router, from);
                 } else {
-                    abortOrComplete(from, to, handler);
+                    abortOrComplete(router, from, to, handler);
                 }
             }
 
-            if (to != null) {
-                inProgressChangeHandlers.put(to.getInstanceId(), new ChangeHandlerData(handler, isPush));
+            Controller.ViewBuilder viewBuilder = to != null && to.getView() == null && !to.hasRecycledView() ? to.onCreateViewBuilder() : null;
+            if (viewBuilder != null) {
+                new PendingInflation(router, to, from, isPush, container, handler, listeners, viewBuilder).start();
+            } else {
+                performChange(router, to, from, isPush, container, handler, listeners);
             }
+        }
+    }
 
-            for (ControllerChangeListener listener : listeners) {
-                listener.onChangeStarted(to, from, isPush, container, handler);
-            }
+    private static void performChange(@NonNull Router router, @Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler, @NonNull ControllerChangeListener[] listeners) {
+        if (!Conductor.isTracingEnabled()) {
+            startChange(router, to, from, isPush, container, handler, listeners, null, 0);
+            return;
+        }
 
-            final ControllerChangeType toChangeType = isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
-            final ControllerChangeType fromChangeType = isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
+        // The async section spans the whole change, which may complete on a later frame
+        String asyncSectionName = TraceUtils.sectionName("Conductor.change", traceClass(to, from));
+        int asyncSectionCookie = ++nextTraceCookie;
+        TraceUtils.beginAsyncSection(asyncSectionName, asyncSectionCookie);
 
-            final View toView;
-            if (to != null) {
-                toView = to.inflate(container);
-                to.changeStarted(handler, toChangeType);
-            } else {
-                toView = null;
-            }
+        TraceUtils.beginSection("Conductor.performChange", traceClass(to, from));
+        try {
+            startChange(router, to, from, isPush, container, handler, listeners, asyncSectionName, asyncSectionCookie);
+        } finally {
+            TraceUtils.endSection();
+        }
+    }
 
-            final View fromView;
-            if (from != null) {
-                fromView = from.getView();
-                from.changeStarted(handler, fromChangeType);
-            } else {
-                fromView = null;
-            }
+    private static void startChange(@NonNull final Router router, @Nullable final Controller to, @Nullable final Controller from, final boolean isPush,
+                                    @NonNull final ViewGroup container, @NonNull final ControllerChangeHandler handler, @NonNull final ControllerChangeListener[] listeners,
+                                    @Nullable final String asyncSectionName, final int asyncSectionCookie) {
+        if (to != null) {
+            router.inProgressChangeHandlers.put(to, new ChangeHandlerData(handler, isPush));
+        }
 
-            handler.performChange(container, fromView, toView, isPush, new ControllerChangeCompletedListener() {
-                @Override
-                public void onChangeCompleted() {
-                    if (from != null) {
-                        from.changeEnded(handler, fromChangeType);
-                    }
+        for (ControllerChangeListener listener : listeners) {
+            listener.onChangeStarted(to, from, isPush, container, handler);
+        }
 
-                    if (to != null) {
-                        inProgressChangeHandlers.remove(to.getInstanceId());
-                        to.changeEnded(handler, toChangeType);
-                    }
+        final ControllerChangeType toChangeType = isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
+        final ControllerChangeType fromChangeType = isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
 
-                    for (ControllerChangeListener listener : listeners) {
-                        listener.onChangeCompleted(to, from, isPush, container, handler);
-                    }
+        final View toView;
+        if (to != null) {
+            toView = to.inflate(container);
+            to.changeStarted(handler, toChangeType);
+        } else {
+            toView = null;
+        }
 
-                    if (handler.forceRemoveViewOnPush && fromView != null) {
-                        ViewParent fromParent = fromView.getParent();
-                        if (fromParent != null && fromParent instanceof ViewGroup) {
-                            ((ViewGroup)fromParent).removeView(fromView);
-                        }
+        final View fromView;
+        if (from != null) {
+            fromView = from.getView();
+            from.changeStarted(handler, fromChangeType);
+        } else {
+            fromView = null;
+        }
+
+        handler.performChange(container, fromView, toView, isPush, new ControllerChangeCompletedListener() {
+            @Override
+            public void onChangeCompleted() {
+                if (from != null) {
+                    from.changeEnded(handler, fromChangeType);
+                }
+
+                if (to != null) {
+                    ChangeHandlerData changeHandlerData = router.inProgressChangeHandlers.get(to);
+                    if (changeHandlerData != null && changeHandlerData.changeHandler == handler) {
+                        router.inProgressChangeHandlers.remove(to);
                     }
+                    to.changeEnded(handler, toChangeType);
+                }
+
+                for (ControllerChangeListener listener : listeners) {
+                    listener.onChangeCompleted(to, from, isPush, container, handler);
+                }
 
-                    if (handler.removesFromViewOnPush() && from != null) {
-                        from.setNeedsAttach(false);
+                if (handler.forceRemoveViewOnPush && fromView != null) {
+                    ViewParent fromParent = fromView.getParent();
+                    if (fromParent != null && fromParent instanceof ViewGroup) {
+                        ((ViewGroup)fromParent).removeView(fromView);
                     }
                 }
-            });
+
+                if (handler.removesFromViewOnPush() && from != null) {
+                    from.setNeedsAttach(false);
+                }
+
+                if (asyncSectionName != null) {
+                    TraceUtils.endAsyncSection(asyncSectionName, asyncSectionCookie);
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private static Class<?> traceClass(@Nullable Controller to, @Nullable Controller from) {
+        if (to != null) {
+            return to.getClass();
         }
+        return from != null ? from.getClass() : null;
     }
 
     protected void onEnd(){ }
@@ -260,14 +413,16 @@ public abstract class ControllerChangeHandler {
     }
 
     static class ChangeTransaction {
+        @NonNull final Router router;
         @Nullable final Controller to;
         @Nullable final Controller from;
         final boolean isPush;
         @Nullable final ViewGroup container;
         @Nullable final ControllerChangeHandler changeHandler;
-        @NonNull final List<ControllerChangeListener> listeners;
+        @NonNull final ControllerChangeListener[] listeners;
 
-        public ChangeTransaction(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull List<ControllerChangeListener> listeners) {
+        public ChangeTransaction(@NonNull Router router, @Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull ControllerChangeListener[] listeners) {
+            this.router = router;
             this.to = to;
             this.from = from;
             this.isPush = isPush;
@@ -304,6 +459,20 @@ public abstract class ControllerChangeHandler {
         void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler);
     }
 
+    /**
+     * Creates new instances of a {@link ControllerChangeHandler} without reflection when it is restored from a
+     * saved state.
+     *
+     * @see #registerFactory(Class, ChangeHandlerFactory)
+     */
+    public interface ChangeHandlerFactory {
+        /**
+         * Returns a new, unused instance of the change handler this factory was registered for.
+         */
+        @NonNull
+        ControllerChangeHandler newInstance();
+    }
+
     /**
      * A simplified listener for being notified when the change is complete. This MUST be called by any custom
      * ControllerChangeHandlers in order to ensure that {@link Controller}s will be notified of this change.
@@ -315,7 +484,7 @@ public abstract class ControllerChangeHandler {
         void onChangeCompleted();
     }
 
-    private static class ChangeHandlerData {
+    static class ChangeHandlerData {
         public final ControllerChangeHandler changeHandler;
         public final boolean isPush;
 
@@ -325,4 +494,134 @@ public abstract class ControllerChangeHandler {
         }
     }
 
+    /**
+     * A change whose entering controller's view is built by a {@link Controller.ViewBuilder} on a background
+     * thread. The change is performed on the main thread once the view is ready, or right away through
+     * {@link #complete()} if it can't wait any longer.
+     */
+    static final class PendingInflation implements Runnable {
+
+        private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+        final boolean isPush;
+        private final Router router;
+        private final Controller to;
+        @Nullable private final Controller from;
+        private final ViewGroup container;
+        private final ControllerChangeHandler handler;
+        private final ControllerChangeListener[] listeners;
+        private final Controller.ViewBuilder viewBuilder;
+        private final LayoutInflater inflater;
+        // Claimed by whichever thread builds the view first
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final FutureTask<View> task;
+        private boolean done;
+
+        PendingInflation(@NonNull Router router, @NonNull Controller to, @Nullable Controller from, boolean isPush,
+                         @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler,
+                         @NonNull ControllerChangeListener[] listeners, @NonNull Controller.ViewBuilder viewBuilder) {
+            this.router = router;
+            this.to = to;
+            this.from = from;
+            this.isPush = isPush;
+            this.container = container;
+            this.handler = handler;
+            this.listeners = listeners;
+            this.viewBuilder = viewBuilder;
+            inflater = LayoutInflater.from(container.getContext());
+
+            task = new FutureTask<View>(new Callable<View>() {
+                @Override
+                public View call() {
+                    return claimed.compareAndSet(false, true) ? PendingInflation.this.viewBuilder.build(inflater, PendingInflation.this.container) : null;
+                }
+            }) {
+                @Override
+                protected void done() {
+                    MAIN_HANDLER.post(PendingInflation.this);
+                }
+            };
+        }
+
+        void start() {
+            PendingInflation previous = router.pendingInflations.put(to, this);
+            if (previous != null) {
+                previous.done = true;
+            }
+            Conductor.getInflationExecutor().execute(task);
+        }
+
+        /**
+         * Called on the main thread once the background build has finished.
+         */
+        @Override
+        public void run() {
+            if (!done) {
+                complete();
+            }
+        }
+
+        /**
+         * Performs the change now, building the view on the main thread or waiting for the background build
+         * if it has already started.
+         */
+        void complete() {
+            finish();
+
+            View view;
+            if (claimed.compareAndSet(false, true)) {
+                view = viewBuilder.build(inflater, container);
+            } else {
+                view = getBuiltView();
+            }
+
+            if (to.isBeingDestroyed() || to.getRouter() != router || router.container != container) {
+                // The controller or its container went away in the meantime
+                return;
+            }
+
+            to.setAsyncBuiltView(view);
+            performChange(router, to, from != null && !from.isDestroyed() ? from : null, isPush, container, handler, listeners);
+        }
+
+        void cancel() {
+            finish();
+            // Keeps the background build from running if it hasn't started yet
+            claimed.set(true);
+        }
+
+        private void finish() {
+            done = true;
+            if (router.pendingInflations.get(to) == this) {
+                router.pendingInflations.remove(to);
+            }
+        }
+
+        @NonNull
+        private View getBuiltView() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return task.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new RuntimeException(cause);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
 }
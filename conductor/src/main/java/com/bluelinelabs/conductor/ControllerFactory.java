@@ -20,13 +20,15 @@ import android.os.Bundle;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 public class ControllerFactory {
-  private static final HashMap<String, Class<?>> classMap = new HashMap<>();
+  private static final ConcurrentHashMap<String, Class<?>> classMap = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Class<?>, Constructors> constructorMap = new ConcurrentHashMap<>();
 
   @NonNull
   private static Class<?> loadClass(@NonNull ClassLoader classLoader, @NonNull String className) throws ClassNotFoundException {
@@ -34,11 +36,32 @@ public class ControllerFactory {
     if (clazz == null) {
       // Class not found in the cache, see if it's real, and try to add it
       clazz = Class.forName(className, false, classLoader);
-      classMap.put(className, clazz);
+      Class<?> existing = classMap.putIfAbsent(className, clazz);
+      if (existing != null) {
+        clazz = existing;
+      }
     }
     return clazz;
   }
 
+  /**
+   * Returns the restorable constructors of the given class, resolving them reflectively only the first time the
+   * class is seen. Classes without a usable constructor are cached as well, so the lookup is never repeated.
+   * Safe to call from any thread.
+   */
+  @NonNull
+  static Constructors getConstructors(@NonNull Class<?> cls) {
+    Constructors constructors = constructorMap.get(cls);
+    if (constructors == null) {
+      constructors = Constructors.resolve(cls);
+      Constructors existing = constructorMap.putIfAbsent(cls, constructors);
+      if (existing != null) {
+        constructors = existing;
+      }
+    }
+    return constructors;
+  }
+
   static boolean isControllerClass(@NonNull ClassLoader classLoader, @NonNull String className) {
     try {
       Class<?> clazz = loadClass(classLoader, className);
@@ -62,32 +85,23 @@ public class ControllerFactory {
     }
   }
 
-  @Nullable
-  private static Constructor getDefaultConstructor(@NonNull Constructor[] constructors) {
-    for (Constructor constructor : constructors) {
-      if (constructor.getParameterTypes().length == 0) {
-        return constructor;
-      }
-    }
-    return null;
-  }
-
-  @Nullable
-  private static Constructor getBundleConstructor(@NonNull Constructor[] constructors) {
-    for (Constructor constructor : constructors) {
-      if (constructor.getParameterTypes().length == 1 && constructor.getParameterTypes()[0] == Bundle.class) {
-        return constructor;
-      }
-    }
-    return null;
+  /**
+   * Prepares the given controller class for later instantiation, so that {@link #newInstance(ClassLoader, String, Object)}
+   * does not have to resolve it on the main thread. Called by {@link Conductor#prewarm(java.util.Collection)} from a
+   * background thread, so overriding implementations must be thread-safe.
+   *
+   * @param controllerClass The controller class to prepare.
+   */
+  @WorkerThread
+  public void prewarm(@NonNull Class<? extends Controller> controllerClass) {
+    classMap.putIfAbsent(controllerClass.getName(), controllerClass);
+    getConstructors(controllerClass);
   }
 
   @NonNull
   public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
     Class<? extends Controller> cls = loadControllerClass(classLoader, className);
-
-    Constructor[] constructors = cls.getConstructors();
-    Constructor bundleConstructor = getBundleConstructor(constructors);
+    Constructors constructors = getConstructors(cls);
 
     Controller controller;
 
@@ -104,16 +118,18 @@ public class ControllerFactory {
     }
 
     try {
-      if (bundleConstructor != null) {
-        controller = (Controller) bundleConstructor.newInstance(bundle);
-      } else {
-        //noinspection ConstantConditions
-        controller = (Controller) getDefaultConstructor(constructors).newInstance();
+      if (constructors.bundleConstructor != null) {
+        controller = (Controller) constructors.bundleConstructor.newInstance(bundle);
+      } else if (constructors.defaultConstructor != null) {
+        controller = (Controller) constructors.defaultConstructor.newInstance();
 
         // Restore the args that existed before the last process death
         if (args != null) {
           controller.args.putAll(bundle);
         }
+      } else {
+        throw new Controller.InstantiationException("Unable to instantiate controller " + className
+          + ": make sure class has a public constructor that takes a Bundle argument or an empty public constructor");
       }
     } catch (IllegalAccessException e) {
       throw new Controller.InstantiationException("Unable to instantiate controller " + className
@@ -131,4 +147,34 @@ public class ControllerFactory {
     return controller;
   }
 
+  /** Resolved public constructors of a controller class that can be used to restore it. */
+  static final class Constructors {
+    @Nullable final Constructor<?> bundleConstructor;
+    @Nullable final Constructor<?> defaultConstructor;
+
+    private Constructors(@Nullable Constructor<?> bundleConstructor, @Nullable Constructor<?> defaultConstructor) {
+      this.bundleConstructor = bundleConstructor;
+      this.defaultConstructor = defaultConstructor;
+    }
+
+    boolean canRestore() {
+      return bundleConstructor != null || defaultConstructor != null;
+    }
+
+    @NonNull
+    static Constructors resolve(@NonNull Class<?> cls) {
+      Constructor<?> bundleConstructor = null;
+      Constructor<?> defaultConstructor = null;
+      for (Constructor<?> constructor : cls.getConstructors()) {
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        if (parameterTypes.length == 0) {
+          defaultConstructor = constructor;
+        } else if (parameterTypes.length == 1 && parameterTypes[0] == Bundle.class) {
+          bundleConstructor = constructor;
+        }
+      }
+      return new Constructors(bundleConstructor, defaultConstructor);
+    }
+  }
+
 }
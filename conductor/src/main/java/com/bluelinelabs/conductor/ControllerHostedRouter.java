@@ -40,14 +40,23 @@ public class ControllerHostedRouter extends Router {
     private final String KEY_TAG = "ControllerHostedRouter.tag";
 
     private Controller hostController;
+    private Controller ownerController;
 
     @IdRes private int hostId;
     private String tag;
     private boolean isDetachFrozen;
 
-    ControllerHostedRouter() { }
+    ControllerHostedRouter() {
+        backstack.setOnChangedListener(new Runnable() {
+            @Override
+            public void run() {
+                invalidateOwnerSavedState();
+            }
+        });
+    }
 
     ControllerHostedRouter(int hostId, @Nullable String tag) {
+        this();
         this.hostId = hostId;
         this.tag = tag;
     }
@@ -64,7 +73,10 @@ public class ControllerHostedRouter extends Router {
             this.container = container;
 
             for (RouterTransaction transaction : backstack) {
-                transaction.controller.setParentController(controller);
+                Controller childController = transaction.instantiatedController();
+                if (childController != null) {
+                    childController.setParentController(controller);
+                }
             }
 
             watchContainerAttach();
@@ -83,8 +95,9 @@ public class ControllerHostedRouter extends Router {
             }
         }
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.getView() != null) {
-                transaction.controller.detach(transaction.controller.getView(), true, false);
+            Controller controller = transaction.instantiatedController();
+            if (controller != null && controller.getView() != null) {
+                controller.detach(controller.getView(), true, false);
             }
         }
 
@@ -93,10 +106,35 @@ public class ControllerHostedRouter extends Router {
         container = null;
     }
 
+    /**
+     * Sets the controller this router is a child router of. Unlike the host, the owner is kept while the owner's
+     * view is destroyed, so the router stays part of the {@link ControllerIndex} of its root router.
+     */
+    final void setOwnerController(@NonNull Controller controller) {
+        ownerController = controller;
+
+        ControllerIndex controllerIndex = getControllerIndex();
+        if (controllerIndex != null) {
+            controllerIndex.addRouter(this);
+        }
+    }
+
+    final void removeOwnerController() {
+        ControllerIndex controllerIndex = getControllerIndex();
+        if (controllerIndex != null) {
+            controllerIndex.removeRouter(this);
+        }
+
+        ownerController = null;
+    }
+
     final void setDetachFrozen(boolean frozen) {
         isDetachFrozen = frozen;
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.setDetachFrozen(frozen);
+            Controller controller = transaction.instantiatedController();
+            if (controller != null) {
+                controller.setDetachFrozen(frozen);
+            }
         }
     }
 
@@ -109,7 +147,7 @@ public class ControllerHostedRouter extends Router {
     @Override
     protected void pushToBackstack(@NonNull RouterTransaction entry) {
         if (isDetachFrozen) {
-            entry.controller.setDetachFrozen(true);
+            entry.controller().setDetachFrozen(true);
         }
         super.pushToBackstack(entry);
     }
@@ -118,7 +156,10 @@ public class ControllerHostedRouter extends Router {
     public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
         if (isDetachFrozen) {
             for (RouterTransaction transaction : newBackstack) {
-                transaction.controller.setDetachFrozen(true);
+                Controller controller = transaction.instantiatedController();
+                if (controller != null) {
+                    controller.setDetachFrozen(true);
+                }
             }
         }
         super.setBackstack(newBackstack, changeHandler);
@@ -247,6 +288,20 @@ public class ControllerHostedRouter extends Router {
         }
     }
 
+    @Override @Nullable
+    Controller getOwnerController() {
+        return ownerController;
+    }
+
+    @Override @Nullable
+    ControllerIndex getControllerIndex() {
+        Router ownerRouter = ownerController != null ? ownerController.getRouter() : null;
+        ControllerIndex controllerIndex = ownerRouter != null ? ownerRouter.getControllerIndex() : null;
+
+        // Routers of controllers that already left the backstack are no longer part of the index
+        return controllerIndex != null && controllerIndex.contains(ownerController) ? controllerIndex : null;
+    }
+
     @Override @NonNull
     TransactionIndexer getTransactionIndexer() {
         Router rootRouter = getRootRouter();
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Index of every {@link Controller} on the backstacks of a root {@link Router} and all of its child routers. It
+ * allows finding controllers by instance id or by router and tag without walking the router tree. Routers keep
+ * it up to date as transactions enter and leave their backstacks and as child routers are added or removed.
+ */
+final class ControllerIndex {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Router, Map<String, List<RouterTransaction>>> tags = new IdentityHashMap<>();
+    // Instance ids of controllers destroyed along with a hibernated ancestor, mapped to the id of their parent
+    private final Map<String, String> hibernatedParents = new HashMap<>();
+
+    /**
+     * Returns the controller with the given instance id if it is hosted by the passed router or any of its
+     * descendant routers. A lazily restored controller is instantiated by this lookup.
+     */
+    @Nullable
+    Controller getControllerWithInstanceId(@NonNull Router router, @NonNull String instanceId) {
+        Entry entry = entries.get(instanceId);
+        if (entry == null && !hibernatedParents.isEmpty()) {
+            entry = rehydrateHibernatedParent(instanceId);
+        }
+        if (entry == null || router.getOwnerController() == null) {
+            // The root router hosts every indexed controller
+            return entry != null ? entry.transaction.controller() : null;
+        }
+
+        Entry parent = entry;
+        while (parent.router != router) {
+            Controller owner = parent.router.getOwnerController();
+            parent = owner != null ? entries.get(owner.getInstanceId()) : null;
+            if (parent == null || parent.transaction.instantiatedController() != owner) {
+                return null;
+            }
+        }
+        return entry.transaction.controller();
+    }
+
+    /**
+     * Returns the topmost controller pushed to the passed router with the given tag.
+     */
+    @Nullable
+    Controller getControllerWithTag(@NonNull Router router, @NonNull String tag) {
+        Map<String, List<RouterTransaction>> routerTags = tags.get(router);
+        List<RouterTransaction> transactions = routerTags != null ? routerTags.get(tag) : null;
+        return transactions != null ? transactions.get(transactions.size() - 1).controller() : null;
+    }
+
+    boolean contains(@NonNull Controller controller) {
+        Entry entry = entries.get(controller.getInstanceId());
+        return entry != null && entry.transaction.instantiatedController() == controller;
+    }
+
+    /**
+     * Adds a transaction that has just been pushed on top of the backstack of the passed router, along with all
+     * controllers already hosted by its child routers. Transactions whose controller has not been instantiated
+     * yet are indexed by the instance id from their saved state.
+     */
+    void add(@NonNull Router router, @NonNull RouterTransaction transaction) {
+        entries.put(transaction.controllerInstanceId(), new Entry(transaction, router));
+        if (!hibernatedParents.isEmpty()) {
+            hibernatedParents.remove(transaction.controllerInstanceId());
+        }
+
+        addTag(router, transaction);
+
+        Controller controller = transaction.instantiatedController();
+        if (controller != null) {
+            for (Router childRouter : controller.childRouters) {
+                addRouter(childRouter);
+            }
+        }
+    }
+
+    /**
+     * Adds the child routers of a lazily restored controller once it has been instantiated.
+     */
+    void onControllerInstantiated(@NonNull RouterTransaction transaction) {
+        for (Router childRouter : transaction.controller().childRouters) {
+            addRouter(childRouter);
+        }
+    }
+
+    /**
+     * Remembers the controllers hosted by the child routers of a transaction that is about to be hibernated. They
+     * are destroyed and leave the index along with it, but keep their activity result registrations, so a lookup
+     * of one of them restores its hibernated ancestor.
+     */
+    void onHibernating(@NonNull RouterTransaction transaction) {
+        Controller controller = transaction.instantiatedController();
+        if (controller == null) {
+            return;
+        }
+
+        for (Router childRouter : controller.childRouters) {
+            for (RouterTransaction childTransaction : childRouter.backstack) {
+                hibernatedParents.put(childTransaction.controllerInstanceId(), controller.getInstanceId());
+                onHibernating(childTransaction);
+            }
+        }
+    }
+
+    /**
+     * Removes a transaction that has left the backstack of the passed router, along with all controllers hosted
+     * by its child routers.
+     */
+    void remove(@NonNull Router router, @NonNull RouterTransaction transaction) {
+        String instanceId = transaction.controllerInstanceId();
+        Entry entry = entries.get(instanceId);
+        if (entry == null || entry.transaction != transaction) {
+            return;
+        }
+        entries.remove(instanceId);
+
+        String tag = transaction.tag();
+        Map<String, List<RouterTransaction>> routerTags = tags.get(router);
+        if (tag != null && routerTags != null) {
+            List<RouterTransaction> transactions = routerTags.get(tag);
+            if (transactions != null) {
+                removeByIdentity(transactions, transaction);
+                if (transactions.isEmpty()) {
+                    routerTags.remove(tag);
+                }
+            }
+            if (routerTags.isEmpty()) {
+                tags.remove(router);
+            }
+        }
+
+        Controller controller = transaction.instantiatedController();
+        if (controller != null) {
+            for (Router childRouter : controller.childRouters) {
+                removeRouter(childRouter);
+            }
+        } else if (!hibernatedParents.isEmpty()) {
+            forgetHibernatedChildren(instanceId);
+        }
+    }
+
+    /**
+     * Adds the whole backstack of the passed router, ordered from root to top.
+     */
+    void addRouter(@NonNull Router router) {
+        Iterator<RouterTransaction> backstackIterator = router.backstack.reverseIterator();
+        while (backstackIterator.hasNext()) {
+            add(router, backstackIterator.next());
+        }
+    }
+
+    void removeRouter(@NonNull Router router) {
+        for (RouterTransaction transaction : router.backstack) {
+            remove(router, transaction);
+        }
+        tags.remove(router);
+    }
+
+    /**
+     * Updates the index after the whole backstack of the passed router has been replaced. Controllers kept on the
+     * backstack stay indexed along with their child routers, only the tags of the router are rebuilt.
+     */
+    void updateRouter(@NonNull Router router, @NonNull List<RouterTransaction> oldTransactions) {
+        Set<RouterTransaction> transactions = Collections.newSetFromMap(new IdentityHashMap<RouterTransaction, Boolean>());
+        Set<Controller> controllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
+        for (RouterTransaction transaction : router.backstack) {
+            transactions.add(transaction);
+            Controller controller = transaction.instantiatedController();
+            if (controller != null) {
+                controllers.add(controller);
+            }
+        }
+
+        for (RouterTransaction transaction : oldTransactions) {
+            Controller controller = transaction.instantiatedController();
+            if (!transactions.contains(transaction) && (controller == null || !controllers.contains(controller))) {
+                remove(router, transaction);
+            }
+        }
+
+        tags.remove(router);
+        Iterator<RouterTransaction> backstackIterator = router.backstack.reverseIterator();
+        while (backstackIterator.hasNext()) {
+            RouterTransaction transaction = backstackIterator.next();
+            if (isIndexed(transaction)) {
+                entries.put(transaction.controllerInstanceId(), new Entry(transaction, router));
+                addTag(router, transaction);
+            } else {
+                add(router, transaction);
+            }
+        }
+    }
+
+    /**
+     * Restores the hibernated parent of the controller with the given instance id, along with any hibernated
+     * ancestors of its own. Restoring a controller adds the transactions of its child routers to the index.
+     */
+    @Nullable
+    private Entry rehydrateHibernatedParent(@NonNull String instanceId) {
+        String parentId = hibernatedParents.get(instanceId);
+        if (parentId == null) {
+            return null;
+        }
+
+        Entry parent = entries.get(parentId);
+        if (parent == null) {
+            parent = rehydrateHibernatedParent(parentId);
+        }
+        if (parent == null) {
+            return null;
+        }
+
+        parent.transaction.controller();
+        return entries.get(instanceId);
+    }
+
+    /**
+     * Forgets the controllers destroyed along with a hibernated controller that left the backstack before it was
+     * ever restored.
+     */
+    private void forgetHibernatedChildren(@NonNull String parentId) {
+        List<String> children = new ArrayList<>();
+        Iterator<Map.Entry<String, String>> iterator = hibernatedParents.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> hibernatedParent = iterator.next();
+            if (hibernatedParent.getValue().equals(parentId)) {
+                children.add(hibernatedParent.getKey());
+                iterator.remove();
+            }
+        }
+
+        for (String child : children) {
+            forgetHibernatedChildren(child);
+        }
+    }
+
+    private boolean isIndexed(@NonNull RouterTransaction transaction) {
+        Entry entry = entries.get(transaction.controllerInstanceId());
+        if (entry == null) {
+            return false;
+        }
+
+        Controller controller = transaction.instantiatedController();
+        return entry.transaction == transaction || (controller != null && entry.transaction.instantiatedController() == controller);
+    }
+
+    private void addTag(@NonNull Router router, @NonNull RouterTransaction transaction) {
+        String tag = transaction.tag();
+        if (tag == null) {
+            return;
+        }
+
+        Map<String, List<RouterTransaction>> routerTags = tags.get(router);
+        if (routerTags == null) {
+            routerTags = new HashMap<>();
+            tags.put(router, routerTags);
+        }
+
+        List<RouterTransaction> transactions = routerTags.get(tag);
+        if (transactions == null) {
+            transactions = new ArrayList<>(1);
+            routerTags.put(tag, transactions);
+        }
+        transactions.add(transaction);
+    }
+
+    private static void removeByIdentity(@NonNull List<RouterTransaction> transactions, @NonNull RouterTransaction transaction) {
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            if (transactions.get(i) == transaction) {
+                transactions.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static final class Entry {
+        @NonNull final RouterTransaction transaction;
+        @NonNull final Router router;
+
+        Entry(@NonNull RouterTransaction transaction, @NonNull Router router) {
+            this.transaction = transaction;
+            this.router = router;
+        }
+    }
+}
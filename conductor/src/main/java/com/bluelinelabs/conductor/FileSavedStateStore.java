@@ -0,0 +1,438 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseArray;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A {@link SavedStateStore} that keeps each state in its own file in an app-private directory. Files are replaced
+ * atomically, so a process killed while writing leaves the previous state intact.
+ * <p>
+ * States whose Activity finished are deleted right away. States left behind by a process that was never restored
+ * are deleted once they are older than the maximum age, the first time something is written.
+ * <p>
+ * States are marshalled through {@link Parcel}, so they can only be read by the same build of the app. This matches
+ * the lifetime of saved instance state, which doesn't survive app updates either. States holding binders or file
+ * descriptors can't be marshalled, {@link #write(String, Bundle)} returns false for them, so they are kept in the
+ * Activity's Bundle as usual.
+ * <p>
+ * When created with a write executor, saving is split in two phases. The main thread only copies the Bundles, lists
+ * and arrays of the state into a snapshot, as the Bundles of the router tree are shared with controllers and keep
+ * changing after the save. Marshalling the snapshot, writing and syncing the file happen on the executor. Until
+ * then, reads of the key are served from the snapshot, so a recreated Activity in the same process doesn't have to
+ * wait for the disk.
+ */
+public class FileSavedStateStore implements SavedStateStore {
+
+    private static final String DIRECTORY_NAME = "conductor-saved-state";
+    private static final String FILE_SUFFIX = ".state";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    @Nullable
+    private static Executor defaultWriteExecutor;
+
+    @NonNull private final File directory;
+    private final long maxAgeMillis;
+    @Nullable private final Executor writeExecutor;
+    // States handed to the write executor that haven't been written yet, guarded by itself
+    private final Map<String, Bundle> pendingWrites = new HashMap<>();
+    private volatile boolean collectedGarbage;
+
+    /**
+     * Creates a store in the app's files directory, which keeps states for up to seven days. States are written on a
+     * single background thread, so no disk IO happens in {@code onSaveInstanceState}.
+     */
+    public FileSavedStateStore(@NonNull Context context) {
+        this(context, getDefaultWriteExecutor());
+    }
+
+    /**
+     * Creates a store that writes states right away, on the main thread while the Activity saves its instance state.
+     * Prefer {@link #FileSavedStateStore(File, long, Executor)} unless the states are known to be small.
+     *
+     * @param directory The directory the states are written to. Any other files in it might be deleted.
+     * @param maxAgeMillis The age after which states that were never restored are deleted.
+     */
+    public FileSavedStateStore(@NonNull File directory, long maxAgeMillis) {
+        this(directory, maxAgeMillis, null);
+    }
+
+    /**
+     * Same as {@link #FileSavedStateStore(Context)}, but writes states on the given executor. It has to run tasks
+     * one at a time in the order they were submitted.
+     */
+    public FileSavedStateStore(@NonNull Context context, @NonNull Executor writeExecutor) {
+        this(new File(context.getFilesDir(), DIRECTORY_NAME), DEFAULT_MAX_AGE_MILLIS, writeExecutor);
+    }
+
+    /**
+     * @param directory The directory the states are written to. Any other files in it might be deleted.
+     * @param maxAgeMillis The age after which states that were never restored are deleted.
+     * @param writeExecutor The executor states are written on, or {@code null} to write them right
+     *                      away. It has to run tasks one at a time in the order they were submitted.
+     */
+    public FileSavedStateStore(@NonNull File directory, long maxAgeMillis, @Nullable Executor writeExecutor) {
+        this.directory = directory;
+        this.maxAgeMillis = maxAgeMillis;
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Returns false for states holding binders or file descriptors, which can't be marshalled.
+     * <p>
+     * Note that when writing on an executor, this returns true before the state has been written. Should writing
+     * fail after all, e.g. because of a binder hidden in a Parcelable, the state is lost and the router starts out
+     * empty once restored after process death.
+     */
+    @Override
+    public boolean write(@NonNull final String key, @NonNull Bundle state) {
+        if (state.hasFileDescriptors() || containsBinder(state)) {
+            return false;
+        }
+
+        if (writeExecutor == null) {
+            byte[] data = marshall(state);
+            return data != null && writeToFile(key, data);
+        }
+
+        final Bundle snapshot = snapshot(state);
+        synchronized (pendingWrites) {
+            pendingWrites.put(key, snapshot);
+        }
+
+        writeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (pendingWrites) {
+                    if (pendingWrites.get(key) != snapshot) {
+                        // Deleted or replaced in the meantime
+                        return;
+                    }
+                }
+
+                byte[] data = marshall(snapshot);
+                if (data != null) {
+                    writeToFile(key, data);
+                }
+
+                synchronized (pendingWrites) {
+                    if (pendingWrites.get(key) == snapshot) {
+                        pendingWrites.remove(key);
+                        pendingWrites.notifyAll();
+                    } else if (!pendingWrites.containsKey(key)) {
+                        // Deleted while it was being written
+                        //noinspection ResultOfMethodCallIgnored
+                        getFile(key).delete();
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Blocks until all states handed to the write executor have been written, or the timeout elapses.
+     *
+     * @return true if there are no more pending writes.
+     */
+    @AnyThread
+    public boolean awaitPendingWrites(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pendingWrites) {
+            while (!pendingWrites.isEmpty()) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                pendingWrites.wait(remainingMillis);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the Bundles, lists and arrays of the given state. Other values are immutable or, as with Bundle itself,
+     * not expected to change once they have been put.
+     */
+    @NonNull
+    private static Bundle snapshot(@NonNull Bundle state) {
+        Bundle snapshot = new Bundle(state);
+        for (String key : state.keySet()) {
+            Object value = state.get(key);
+            Object valueSnapshot = snapshotValue(value);
+            if (valueSnapshot == value) {
+                continue;
+            }
+
+            if (valueSnapshot instanceof Bundle) {
+                snapshot.putBundle(key, (Bundle)valueSnapshot);
+            } else if (valueSnapshot instanceof ArrayList) {
+                //noinspection unchecked
+                snapshot.putParcelableArrayList(key, (ArrayList)valueSnapshot);
+            } else if (valueSnapshot instanceof SparseArray) {
+                //noinspection unchecked
+                snapshot.putSparseParcelableArray(key, (SparseArray)valueSnapshot);
+            } else {
+                snapshot.putParcelableArray(key, (Parcelable[])valueSnapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    @Nullable
+    private static Object snapshotValue(@Nullable Object value) {
+        if (value instanceof Bundle) {
+            return snapshot((Bundle)value);
+        } else if (value instanceof ArrayList) {
+            List<?> list = (List<?>)value;
+            ArrayList<Object> snapshot = new ArrayList<>(list.size());
+            for (Object element : list) {
+                snapshot.add(snapshotValue(element));
+            }
+            return snapshot;
+        } else if (value instanceof SparseArray) {
+            SparseArray<?> sparseArray = (SparseArray<?>)value;
+            SparseArray<Object> snapshot = new SparseArray<>(sparseArray.size());
+            for (int i = 0; i < sparseArray.size(); i++) {
+                snapshot.put(sparseArray.keyAt(i), snapshotValue(sparseArray.valueAt(i)));
+            }
+            return snapshot;
+        } else if (value instanceof Parcelable[]) {
+            Parcelable[] array = ((Parcelable[])value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = (Parcelable)snapshotValue(array[i]);
+            }
+            return array;
+        }
+        return value;
+    }
+
+    private static boolean containsBinder(@Nullable Object value) {
+        if (value instanceof IBinder) {
+            return true;
+        } else if (value instanceof Bundle) {
+            Bundle bundle = (Bundle)value;
+            for (String key : bundle.keySet()) {
+                if (containsBinder(bundle.get(key))) {
+                    return true;
+                }
+            }
+        } else if (value instanceof List) {
+            for (Object element : (List<?>)value) {
+                if (containsBinder(element)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof SparseArray) {
+            SparseArray<?> sparseArray = (SparseArray<?>)value;
+            for (int i = 0; i < sparseArray.size(); i++) {
+                if (containsBinder(sparseArray.valueAt(i))) {
+                    return true;
+                }
+            }
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[])value) {
+                if (containsBinder(element)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns null if the state can't be marshalled, e.g. because a Parcelable in it writes a binder.
+     */
+    @Nullable
+    private static byte[] marshall(@NonNull Bundle state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(state);
+            return parcel.marshall();
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Nullable
+    private Bundle unmarshall(@NonNull byte[] data) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(getClass().getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @WorkerThread
+    private boolean writeToFile(@NonNull String key, @NonNull byte[] data) {
+        collectGarbageIfNeeded();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return false;
+        }
+
+        File tempFile = new File(directory, key + TEMP_FILE_SUFFIX);
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            outputStream.write(data);
+            outputStream.getFD().sync();
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return false;
+        } finally {
+            closeQuietly(outputStream);
+        }
+
+        if (!tempFile.renameTo(getFile(key))) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    @Nullable @Override
+    public Bundle read(@NonNull String key) {
+        synchronized (pendingWrites) {
+            Bundle pendingState = pendingWrites.get(key);
+            if (pendingState != null) {
+                // The snapshot is still to be marshalled, callers get a copy they are free to change
+                return snapshot(pendingState);
+            }
+        }
+
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        byte[] data = new byte[(int)file.length()];
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            int offset = 0;
+            while (offset < data.length) {
+                int read = inputStream.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    return null;
+                }
+                offset += read;
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+
+        return unmarshall(data);
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        synchronized (pendingWrites) {
+            if (pendingWrites.remove(key) != null) {
+                pendingWrites.notifyAll();
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        getFile(key).delete();
+    }
+
+    @NonNull
+    private File getFile(@NonNull String key) {
+        return new File(directory, key + FILE_SUFFIX);
+    }
+
+    @NonNull
+    private static synchronized Executor getDefaultWriteExecutor() {
+        if (defaultWriteExecutor == null) {
+            // States are written one at a time, in the order they were saved
+            defaultWriteExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor-saved-state");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultWriteExecutor;
+    }
+
+    private void collectGarbageIfNeeded() {
+        if (collectedGarbage) {
+            return;
+        }
+        collectedGarbage = true;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long oldestAllowed = System.currentTimeMillis() - maxAgeMillis;
+        for (File file : files) {
+            if (file.lastModified() < oldestAllowed) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Decides which {@link Controller}s of a {@link Router} are hibernated. A hibernated controller has its state saved
+ * and is destroyed, leaving only its saved state on the backstack. It is restored from that state once it becomes
+ * visible again or is accessed, e.g. through {@link RouterTransaction#controller()} or a lookup by tag or instance id.
+ * <p>
+ * Routers consult their policy after each navigation for every controller that is neither visible nor attached,
+ * starting with the deepest one, until {@link #getMaxHibernationsPerPass()} controllers have been hibernated.
+ *
+ * @see Router#setHibernationPolicy(HibernationPolicy)
+ */
+public abstract class HibernationPolicy {
+
+    /**
+     * Returns whether the controller of the passed transaction should be hibernated.
+     *
+     * @param transaction The transaction of the controller, which is not visible.
+     * @param depth The position of the transaction counted from the top of the backstack, which is at depth 0.
+     */
+    public abstract boolean shouldHibernate(@NonNull RouterTransaction transaction, int depth);
+
+    /**
+     * Returns the maximum number of controllers a Router hibernates in a single pass. Unlimited by default.
+     */
+    public int getMaxHibernationsPerPass() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns a policy that keeps the given number of controllers from the top of the backstack alive.
+     *
+     * @param maxLiveDepth The number of controllers that are never hibernated, at least 1.
+     */
+    @NonNull
+    public static HibernationPolicy maxLiveDepth(final int maxLiveDepth) {
+        if (maxLiveDepth < 1) {
+            throw new IllegalArgumentException("maxLiveDepth must be at least 1, was " + maxLiveDepth);
+        }
+
+        return new HibernationPolicy() {
+            @Override
+            public boolean shouldHibernate(@NonNull RouterTransaction transaction, int depth) {
+                return depth >= maxLiveDepth;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link #heapBudget(float, int, int)}, hibernating a single controller per navigation.
+     */
+    @NonNull
+    public static HibernationPolicy heapBudget(float maxHeapFraction, int minLiveDepth) {
+        return heapBudget(maxHeapFraction, minLiveDepth, 1);
+    }
+
+    /**
+     * Returns a policy that hibernates controllers while the used heap exceeds the given fraction of the maximum
+     * heap size. The given number of controllers from the top of the backstack are always kept alive.
+     * <p>
+     * The memory of a hibernated controller is only freed by a later garbage collection, so the heap still looks
+     * over budget for the rest of a pass. The number of controllers hibernated per pass is capped for that reason.
+     *
+     * @param maxHeapFraction The fraction of {@link Runtime#maxMemory()} above which controllers are hibernated.
+     * @param minLiveDepth The number of controllers that are never hibernated, at least 1.
+     * @param maxHibernationsPerPass The number of controllers hibernated at most after a single navigation, at
+     *                               least 1.
+     */
+    @NonNull
+    public static HibernationPolicy heapBudget(final float maxHeapFraction, final int minLiveDepth, final int maxHibernationsPerPass) {
+        if (maxHeapFraction <= 0 || maxHeapFraction > 1) {
+            throw new IllegalArgumentException("maxHeapFraction must be in (0, 1], was " + maxHeapFraction);
+        }
+        if (minLiveDepth < 1) {
+            throw new IllegalArgumentException("minLiveDepth must be at least 1, was " + minLiveDepth);
+        }
+        if (maxHibernationsPerPass < 1) {
+            throw new IllegalArgumentException("maxHibernationsPerPass must be at least 1, was " + maxHibernationsPerPass);
+        }
+
+        return new HibernationPolicy() {
+            @Override
+            public boolean shouldHibernate(@NonNull RouterTransaction transaction, int depth) {
+                if (depth < minLiveDepth) {
+                    return false;
+                }
+
+                Runtime runtime = Runtime.getRuntime();
+                long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+                return usedMemory > runtime.maxMemory() * maxHeapFraction;
+            }
+
+            @Override
+            public int getMaxHibernationsPerPass() {
+                return maxHibernationsPerPass;
+            }
+        };
+    }
+
+    /**
+     * Listener for controllers being hibernated by a {@link Router} and restored afterwards.
+     *
+     * @see Router#addHibernationListener(HibernationListener)
+     */
+    public interface HibernationListener {
+
+        /**
+         * Called after the controller of the passed transaction has been saved and destroyed.
+         *
+         * @param router The router hosting the transaction.
+         * @param transaction The transaction, which now only holds the saved state of its controller.
+         * @param controller The destroyed controller.
+         */
+        void onHibernated(@NonNull Router router, @NonNull RouterTransaction transaction, @NonNull Controller controller);
+
+        /**
+         * Called after a hibernated controller has been restored from its saved state.
+         *
+         * @param router The router hosting the transaction.
+         * @param transaction The transaction of the controller.
+         * @param controller The restored controller.
+         */
+        void onRehydrated(@NonNull Router router, @NonNull RouterTransaction transaction, @NonNull Controller controller);
+    }
+}
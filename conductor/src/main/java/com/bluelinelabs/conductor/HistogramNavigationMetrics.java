@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * {@link NavigationMetrics} that aggregate the reported timings into a {@link LatencyHistogram} per Controller
+ * class, navigation direction and {@link NavigationMetrics.Phase}. Timings are recorded in microseconds. Recording
+ * doesn't allocate once a Controller class has been seen, and {@link #snapshotAndReset()} can be called from any
+ * thread, e.g. to upload the histograms periodically.
+ */
+public class HistogramNavigationMetrics implements NavigationMetrics {
+
+    private static final NavigationMetrics.Phase[] PHASES = NavigationMetrics.Phase.values();
+
+    private final Map<Class<? extends Controller>, LatencyHistogram[]> histograms = new HashMap<>();
+
+    @Override
+    public void onNavigationPhase(@NonNull Class<? extends Controller> controllerClass, boolean isPush, @NonNull NavigationMetrics.Phase phase, long elapsedNanos) {
+        synchronized (histograms) {
+            LatencyHistogram[] classHistograms = histograms.get(controllerClass);
+            if (classHistograms == null) {
+                classHistograms = new LatencyHistogram[PHASES.length * 2];
+                histograms.put(controllerClass, classHistograms);
+            }
+
+            int index = histogramIndex(isPush, phase);
+            LatencyHistogram histogram = classHistograms[index];
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                classHistograms[index] = histogram;
+            }
+            histogram.record(elapsedNanos / 1000);
+        }
+    }
+
+    /**
+     * Returns copies of all histograms recorded so far.
+     */
+    @AnyThread @NonNull
+    public List<Entry> snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * Returns copies of all histograms recorded since the last reset and starts over, e.g. after an upload.
+     */
+    @AnyThread @NonNull
+    public List<Entry> snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    @NonNull
+    private List<Entry> snapshot(boolean reset) {
+        List<Entry> entries = new ArrayList<>();
+        synchronized (histograms) {
+            for (Map.Entry<Class<? extends Controller>, LatencyHistogram[]> classHistograms : histograms.entrySet()) {
+                LatencyHistogram[] histogramArray = classHistograms.getValue();
+                for (int i = 0; i < histogramArray.length; i++) {
+                    LatencyHistogram histogram = histogramArray[i];
+                    if (histogram != null && histogram.getTotalCount() > 0) {
+                        entries.add(new Entry(classHistograms.getKey(), i < PHASES.length, PHASES[i % PHASES.length], histogram.copy()));
+                        if (reset) {
+                            histogram.reset();
+                        }
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static int histogramIndex(boolean isPush, @NonNull NavigationMetrics.Phase phase) {
+        return isPush ? phase.ordinal() : PHASES.length + phase.ordinal();
+    }
+
+    /**
+     * The timings of one phase of the navigations to a Controller class, in microseconds.
+     */
+    public static final class Entry {
+
+        @NonNull private final Class<? extends Controller> controllerClass;
+        private final boolean isPush;
+        @NonNull private final NavigationMetrics.Phase phase;
+        @NonNull private final LatencyHistogram histogram;
+
+        Entry(@NonNull Class<? extends Controller> controllerClass, boolean isPush, @NonNull NavigationMetrics.Phase phase, @NonNull LatencyHistogram histogram) {
+            this.controllerClass = controllerClass;
+            this.isPush = isPush;
+            this.phase = phase;
+            this.histogram = histogram;
+        }
+
+        @NonNull
+        public Class<? extends Controller> getControllerClass() {
+            return controllerClass;
+        }
+
+        public boolean isPush() {
+            return isPush;
+        }
+
+        @NonNull
+        public NavigationMetrics.Phase getPhase() {
+            return phase;
+        }
+
+        @NonNull
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Generates the instance ids returned by {@link Controller#getInstanceId()}. Ids are saved along with their
+ * controllers and restored after process death, so an implementation must never return an id that could have
+ * been handed out before, by this process or by a previous one. Controllers may be created on any thread.
+ *
+ * @see Conductor#setInstanceIdGenerator(InstanceIdGenerator)
+ */
+public interface InstanceIdGenerator {
+
+    /**
+     * Returns a new, unique instance id.
+     */
+    @NonNull @AnyThread
+    String nextInstanceId();
+}
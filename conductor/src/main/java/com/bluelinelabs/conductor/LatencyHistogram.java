@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A histogram of non-negative values with fixed, logarithmically sized buckets, similar to HdrHistogram. Values
+ * below 32 are counted exactly. Larger values share a bucket with values that are within 1/16 of them, which keeps
+ * the relative error of reported percentiles below ~6%. Recording never allocates. Values of 2^32 and above are
+ * counted in the last bucket.
+ * <p>
+ * Histograms are not thread safe. {@link HistogramNavigationMetrics} hands out copies for reading.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Values below this are counted in buckets of their own
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+    private static final int MAX_MAGNITUDE = 31;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public LatencyHistogram() {
+        counts = new long[BUCKET_COUNT];
+    }
+
+    private LatencyHistogram(@NonNull LatencyHistogram other) {
+        counts = other.counts.clone();
+        totalCount = other.totalCount;
+        sum = other.sum;
+        min = other.min;
+        max = other.max;
+    }
+
+    /**
+     * Records a value. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts[bucketIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return totalCount > 0 ? min : 0;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the exact mean of all recorded values, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return totalCount > 0 ? (double)sum / totalCount : 0;
+    }
+
+    /**
+     * Returns the highest value of the bucket the given percentile falls into, capped at the largest recorded
+     * value, or 0 if nothing was recorded.
+     *
+     * @param percentile A percentile between 0 and 100.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        double clamped = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long)Math.ceil(clamped / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(getBucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    public int getBucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    public long getCountAtBucket(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Returns the smallest value counted in the bucket at the given index.
+     */
+    public long getBucketLowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        int magnitude = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        return (long)(SUB_BUCKET_COUNT + subBucket) << (magnitude - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the largest value counted in the bucket at the given index. The last bucket has no upper bound.
+     */
+    public long getBucketUpperBound(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return getBucketLowerBound(index + 1) - 1;
+    }
+
+    /**
+     * Adds all values recorded by the other histogram to this one.
+     */
+    public void add(@NonNull LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    @NonNull
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(this);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int)value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int)(value >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.UiThread;
+
+/**
+ * Receives timings of navigations performed by {@link Router}s, see {@link Conductor#setNavigationMetrics(NavigationMetrics)}
+ * and {@link Router#setNavigationMetrics(NavigationMetrics)}. A navigation starts when a {@link Controller} is
+ * pushed with {@link Router#pushController(RouterTransaction)} or shown again by {@link Router#handleBack()}, and
+ * each {@link Phase} of its change is reported with the time elapsed since then. No timing is taken while no
+ * metrics are set.
+ *
+ * @see HistogramNavigationMetrics
+ */
+public interface NavigationMetrics {
+
+    /** The points in a navigation that are reported, in the order they usually occur. */
+    enum Phase {
+        /** The entering Controller's view was created. Not reported if it already had a view. */
+        CREATE_VIEW,
+        /** The change handler was started. */
+        CHANGE_STARTED,
+        /** The first frame after the change was started. Reported after {@link #CHANGE_ENDED} for immediate changes. */
+        FIRST_FRAME,
+        /** The entering Controller's {@link Controller#onChangeEnded(ControllerChangeHandler, ControllerChangeType)} returned. */
+        CHANGE_ENDED
+    }
+
+    /**
+     * Called on the main thread when a navigation reaches a phase. Implementations should return quickly.
+     *
+     * @param controllerClass The class of the entering Controller.
+     * @param isPush          Whether the navigation is a push, as opposed to going back.
+     * @param phase           The phase that was reached.
+     * @param elapsedNanos    The time since the navigation started, in nanoseconds.
+     */
+    @UiThread
+    void onNavigationPhase(@NonNull Class<? extends Controller> controllerClass, boolean isPush, @NonNull Phase phase, long elapsedNanos);
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.UiThread;
+
+/**
+ * A speculative preparation of a {@link RouterTransaction}, started with {@link Router#prepare(RouterTransaction)}.
+ * The transaction's {@link Controller} gets its router and context right away, and its view is inflated the next
+ * time the main thread is idle. Pushing the transaction afterwards uses the prepared view instead of inflating it
+ * on the way to the next frame.
+ * <p>
+ * Preparations that aren't pushed in time, or when memory runs low, are discarded. This drops the pre-inflated view
+ * and makes the controller's context unavailable again, the transaction can still be pushed as usual.
+ */
+public final class PreparedTransaction {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final Router router;
+    private final RouterTransaction transaction;
+    private boolean done;
+
+    private final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            inflate();
+            return false;
+        }
+    };
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            discard();
+        }
+    };
+
+    PreparedTransaction(@NonNull Router router, @NonNull RouterTransaction transaction) {
+        this.router = router;
+        this.transaction = transaction;
+    }
+
+    void start(long timeoutMillis) {
+        Looper.myQueue().addIdleHandler(idleHandler);
+        MAIN_HANDLER.postDelayed(timeoutRunnable, timeoutMillis);
+    }
+
+    @NonNull
+    public RouterTransaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Returns whether the view of the prepared {@link Controller} has been inflated and is waiting to be pushed.
+     */
+    @UiThread
+    public boolean isViewPrepared() {
+        Controller controller = transaction.instantiatedController();
+        return !done && controller != null && controller.getView() != null;
+    }
+
+    /**
+     * Returns whether this preparation has been pushed or discarded.
+     */
+    @UiThread
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Abandons this preparation, unless the transaction has been pushed already. The controller drops its pre-inflated
+     * view and its router, and gets {@link Controller#onContextUnavailable()} until it is pushed.
+     */
+    @UiThread
+    public void discard() {
+        if (done) {
+            return;
+        }
+        finish();
+
+        Controller controller = transaction.instantiatedController();
+        if (controller != null && !router.backstack.contains(controller)) {
+            controller.discardPreparation();
+        }
+    }
+
+    /**
+     * Called once the transaction is pushed, which takes over the prepared view.
+     */
+    void onConsumed() {
+        if (!done) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        done = true;
+        router.onPreparedTransactionDone(this);
+        Looper.myQueue().removeIdleHandler(idleHandler);
+        MAIN_HANDLER.removeCallbacks(timeoutRunnable);
+    }
+
+    /**
+     * Inflates the view of the prepared controller, unless this preparation is done or the view exists already.
+     */
+    void inflate() {
+        ViewGroup container = router.container;
+        Controller controller = transaction.instantiatedController();
+        if (!done && container != null && controller != null && !controller.isDestroyed() && controller.getView() == null) {
+            controller.inflate(container);
+        }
+    }
+}
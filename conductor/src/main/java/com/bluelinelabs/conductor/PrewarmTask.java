@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Tracks a pre-warming request started by {@link Conductor#prewarm(Collection)}. Each requested class is loaded and
+ * its restoration path is resolved on a background executor, so the work is already done when Conductor needs it
+ * on the main thread. Progress can be inspected from any thread, e.g. right before the first frame is drawn.
+ */
+public final class PrewarmTask {
+
+    private final ControllerFactory controllerFactory;
+    private final ClassLoader classLoader;
+    private final List<Object> targets;
+    private final ConcurrentLinkedQueue<String> warmed = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> failed = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    PrewarmTask(@NonNull ControllerFactory controllerFactory, @NonNull ClassLoader classLoader, @NonNull Collection<?> targets) {
+        this.controllerFactory = controllerFactory;
+        this.classLoader = classLoader;
+        this.targets = new ArrayList<Object>(targets);
+    }
+
+    void start(@NonNull Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (Object target : targets) {
+                        warm(target);
+                    }
+                } finally {
+                    doneLatch.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns whether every requested class has been processed, successfully or not.
+     */
+    @AnyThread
+    public boolean isDone() {
+        return doneLatch.getCount() == 0;
+    }
+
+    /**
+     * Blocks until every requested class has been processed or the timeout elapses.
+     *
+     * @return true if pre-warming finished within the timeout.
+     */
+    @AnyThread
+    public boolean await(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return doneLatch.await(timeout, unit);
+    }
+
+    /**
+     * Returns the names of the classes that have been pre-warmed so far, in completion order.
+     */
+    @NonNull @AnyThread
+    public List<String> getWarmedClassNames() {
+        return new ArrayList<>(warmed);
+    }
+
+    /**
+     * Returns the names of the classes that could not be pre-warmed, e.g. because they do not exist or are
+     * neither a {@link Controller} nor a {@link ControllerChangeHandler}.
+     */
+    @NonNull @AnyThread
+    public List<String> getFailedClassNames() {
+        return new ArrayList<>(failed);
+    }
+
+    private void warm(@NonNull Object target) {
+        final String className = target instanceof Class ? ((Class<?>) target).getName() : (String) target;
+
+        try {
+            Class<?> cls = target instanceof Class ? (Class<?>) target : Class.forName(className, false, classLoader);
+
+            if (Controller.class.isAssignableFrom(cls)) {
+                //noinspection unchecked
+                controllerFactory.prewarm((Class<? extends Controller>) cls);
+            } else if (ControllerChangeHandler.class.isAssignableFrom(cls)) {
+                // Run static initializers now rather than during the first transaction restore
+                Class.forName(cls.getName(), true, cls.getClassLoader());
+                ControllerChangeHandler.ensureDefaultConstructor(cls);
+            } else {
+                failed.add(className);
+                return;
+            }
+
+            warmed.add(className);
+        } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+            // Pre-warming is best effort, the regular restore path will report the real error if there is one
+            failed.add(className);
+        }
+    }
+
+    @Override @NonNull
+    public String toString() {
+        return "PrewarmTask{warmed=" + warmed.size() + ", failed=" + failed.size() + ", total=" + targets.size() + "}";
+    }
+}
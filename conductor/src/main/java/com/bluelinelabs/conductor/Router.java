@@ -28,18 +28,29 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ChangeHandlerData;
 import com.bluelinelabs.conductor.ControllerChangeHandler.ChangeTransaction;
 import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.PendingInflation;
+import com.bluelinelabs.conductor.HibernationPolicy.HibernationListener;
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.changehandler.SwapTabChangeHandler;
+import com.bluelinelabs.conductor.internal.ArrayUtils;
+import com.bluelinelabs.conductor.internal.CompactStateCodec;
 import com.bluelinelabs.conductor.internal.NoOpControllerChangeHandler;
 import com.bluelinelabs.conductor.internal.ThreadUtils;
+import com.bluelinelabs.conductor.internal.TraceUtils;
 import com.bluelinelabs.conductor.internal.TransactionIndexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -53,14 +64,48 @@ import androidx.annotation.UiThread;
 public abstract class Router {
 
   private static final String KEY_BACKSTACK = "Router.backstack";
+  private static final String KEY_COMPACT_BACKSTACK = "Router.backstack.compact";
+  private static final long DEFAULT_PREPARE_TIMEOUT_MILLIS = 10000;
   private static final String KEY_POPS_LAST_VIEW = "Router.popsLastView";
 
+  private static final ControllerChangeListener[] NO_CHANGE_LISTENERS = new ControllerChangeListener[0];
+  private static final HibernationListener[] NO_HIBERNATION_LISTENERS = new HibernationListener[0];
+
   final Backstack backstack = new Backstack();
-  private final List<ControllerChangeListener> changeListeners = new ArrayList<>();
+  private final RouterTransaction.OnControllerInstantiatedListener controllerInstantiatedListener = new RouterTransaction.OnControllerInstantiatedListener() {
+    @Override
+    public void onControllerInstantiated(@NonNull RouterTransaction transaction) {
+      Controller controller = transaction.controller();
+      backstack.onControllerInstantiated(transaction);
+      setControllerRouter(controller);
+
+      ControllerIndex controllerIndex = getControllerIndex();
+      if (controllerIndex != null) {
+        controllerIndex.onControllerInstantiated(transaction);
+      }
+
+      if (hibernatedTransactions.remove(transaction)) {
+        for (HibernationListener listener : hibernationListeners) {
+          listener.onRehydrated(Router.this, transaction, controller);
+        }
+      }
+    }
+  };
+  private ControllerChangeListener[] changeListeners = NO_CHANGE_LISTENERS;
+  private HibernationListener[] hibernationListeners = NO_HIBERNATION_LISTENERS;
+  // Weak, as hibernated transactions can leave the backstack without ever being rehydrated
+  private final Set<RouterTransaction> hibernatedTransactions = Collections.newSetFromMap(new WeakHashMap<RouterTransaction, Boolean>());
   private final List<ChangeTransaction> pendingControllerChanges = new ArrayList<>();
+  private final Map<RouterTransaction, PreparedTransaction> preparedTransactions = new IdentityHashMap<>();
+  // Changes of this Router's controllers that are running or waiting for a view, keyed by the entering controller
+  final Map<Controller, ChangeHandlerData> inProgressChangeHandlers = new IdentityHashMap<>();
+  final Map<Controller, PendingInflation> pendingInflations = new IdentityHashMap<>();
+  @Nullable private ViewPool viewPool;
   final List<Controller> destroyingControllers = new ArrayList<>();
 
   private boolean popsLastView = false;
+  @Nullable private HibernationPolicy hibernationPolicy;
+  @Nullable private NavigationMetrics navigationMetrics;
   boolean containerFullyAttached = false;
   boolean isActivityStopped = false;
 
@@ -115,9 +160,14 @@ public abstract class Router {
 
     if (!backstack.isEmpty()) {
       //noinspection ConstantConditions
-      if (backstack.peek().controller.handleBack()) {
+      if (backstack.peek().controller().handleBack()) {
         return true;
-      } else if (popCurrentController()) {
+      }
+
+      if (backstack.size() > 1 && getNavigationMetrics() != null) {
+        backstack.get(backstack.size() - 2).controller().startNavigationTiming(false);
+      }
+      if (popCurrentController()) {
         return true;
       }
     }
@@ -139,7 +189,7 @@ public abstract class Router {
     if (transaction == null) {
       throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
     }
-    return popController(transaction.controller);
+    return popController(transaction.controller());
   }
 
   /**
@@ -153,10 +203,11 @@ public abstract class Router {
     ThreadUtils.ensureMainThread();
 
     RouterTransaction topTransaction = backstack.peek();
-    boolean poppingTopController = topTransaction != null && topTransaction.controller == controller;
+    boolean poppingTopController = topTransaction != null && topTransaction.controller() == controller;
 
     if (poppingTopController) {
       trackDestroyingController(backstack.pop());
+      removeFromControllerIndex(topTransaction);
       performControllerChange(backstack.peek(), topTransaction, false);
     } else {
       RouterTransaction removedTransaction = null;
@@ -167,12 +218,13 @@ public abstract class Router {
 
       while (iterator.hasNext()) {
         RouterTransaction transaction = iterator.next();
-        if (transaction.controller == controller) {
+        if (transaction.instantiatedController() == controller) {
           trackDestroyingController(transaction);
           iterator.remove();
+          removeFromControllerIndex(transaction);
           removedTransaction = transaction;
         } else if (removedTransaction != null) {
-          if (needsNextTransactionAttach && !transaction.controller.isAttached()) {
+          if (needsNextTransactionAttach && !transaction.controller().isAttached()) {
             nextTransaction = transaction;
           }
           break;
@@ -201,9 +253,117 @@ public abstract class Router {
   public void pushController(@NonNull RouterTransaction transaction) {
     ThreadUtils.ensureMainThread();
 
+    if (getNavigationMetrics() != null) {
+      transaction.controller().startNavigationTiming(true);
+    }
+
     RouterTransaction from = backstack.peek();
     pushToBackstack(transaction);
     performControllerChange(transaction, from, true);
+    hibernateIfNeeded();
+  }
+
+  /**
+   * Prepares a transaction that is likely to be pushed soon, e.g. the detail screen of a list item that is being
+   * touched. The {@link Controller} gets this Router and its context right away and its view is inflated once
+   * the main thread is idle, so a later {@link #pushController(RouterTransaction)} of the same transaction
+   * doesn't have to inflate it. Preparations that aren't pushed within ten seconds are discarded.
+   *
+   * @param transaction The transaction that might be pushed.
+   * @return A handle to inspect or discard the preparation.
+   */
+  @UiThread @NonNull
+  public PreparedTransaction prepare(@NonNull RouterTransaction transaction) {
+    return prepare(transaction, DEFAULT_PREPARE_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Same as {@link #prepare(RouterTransaction)}, but discards the preparation after the given timeout.
+   */
+  @UiThread @NonNull
+  public PreparedTransaction prepare(@NonNull RouterTransaction transaction, long timeoutMillis) {
+    ThreadUtils.ensureMainThread();
+
+    PreparedTransaction prepared = preparedTransactions.get(transaction);
+    if (prepared != null) {
+      return prepared;
+    }
+
+    Controller controller = transaction.controller();
+    if (controller.isDestroyed()) {
+      throw new IllegalStateException("Trying to prepare a controller that has already been destroyed. (" + controller.getClass()
+        .getSimpleName() + ")");
+    }
+    if (backstack.contains(controller)) {
+      throw new IllegalStateException("Trying to prepare a controller that already exists on the backstack.");
+    }
+
+    setControllerRouter(controller);
+
+    prepared = new PreparedTransaction(this, transaction);
+    preparedTransactions.put(transaction, prepared);
+    prepared.start(timeoutMillis);
+    return prepared;
+  }
+
+  /**
+   * Discards all preparations started with {@link #prepare(RouterTransaction)} on this Router and its child
+   * routers that haven't been pushed yet. Called automatically when the system is running low on memory.
+   */
+  @UiThread
+  public void discardPreparedTransactions() {
+    for (PreparedTransaction prepared : new ArrayList<>(preparedTransactions.values())) {
+      prepared.discard();
+    }
+
+    for (RouterTransaction transaction : backstack) {
+      Controller controller = transaction.instantiatedController();
+      if (controller != null) {
+        for (Router childRouter : controller.getChildRouters()) {
+          childRouter.discardPreparedTransactions();
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops all views recycled by Controllers using {@link Controller.RetainViewMode#POOLED} on this Router's root.
+   * Called automatically when the system is running low on memory.
+   */
+  @UiThread
+  public void clearViewPool() {
+    Router rootRouter = getRootRouter();
+    if (rootRouter != this) {
+      rootRouter.clearViewPool();
+    } else if (viewPool != null) {
+      viewPool.clear();
+    }
+  }
+
+  @NonNull
+  ViewPool getViewPool() {
+    Router rootRouter = getRootRouter();
+    if (rootRouter != this) {
+      return rootRouter.getViewPool();
+    }
+
+    if (viewPool == null) {
+      viewPool = new ViewPool();
+    }
+    return viewPool;
+  }
+
+  void onPreparedTransactionDone(@NonNull PreparedTransaction prepared) {
+    preparedTransactions.remove(prepared.getTransaction());
+  }
+
+  /**
+   * Starts a {@link RouterBatch} of navigation operations. Nothing happens until {@link RouterBatch#commit()}
+   * is called, which moves this Router to the resulting backstack with a single change.
+   */
+  @NonNull
+  public RouterBatch beginTransaction() {
+    return new RouterBatch(this);
   }
 
   /**
@@ -220,6 +380,8 @@ public abstract class Router {
     RouterTransaction topTransaction = backstack.peek();
     if (!backstack.isEmpty()) {
       trackDestroyingController(backstack.pop());
+      //noinspection ConstantConditions
+      removeFromControllerIndex(topTransaction);
     }
 
     final ControllerChangeHandler handler = transaction.pushChangeHandler();
@@ -241,12 +403,16 @@ public abstract class Router {
       handler.setForceRemoveViewOnPush(true);
     }
     performControllerChange(transaction.pushChangeHandler(handler), topTransaction, true);
+    hibernateIfNeeded();
   }
 
   void destroy(boolean popViews) {
     popsLastView = true;
     final List<RouterTransaction> poppedControllers = backstack.popAll();
     trackDestroyingControllers(poppedControllers);
+    for (RouterTransaction transaction : poppedControllers) {
+      removeFromControllerIndex(transaction);
+    }
 
     if (popViews && poppedControllers.size() > 0) {
       RouterTransaction topTransaction = poppedControllers.get(0);
@@ -256,7 +422,9 @@ public abstract class Router {
           if (changeType == ControllerChangeType.POP_EXIT) {
             for (int i = poppedControllers.size() - 1; i > 0; i--) {
               RouterTransaction transaction = poppedControllers.get(i);
-              performControllerChange(null, transaction, true, new SimpleSwapChangeHandler());
+              if (transaction.isControllerInstantiated()) {
+                performControllerChange(null, transaction, true, new SimpleSwapChangeHandler());
+              }
             }
           }
         }
@@ -278,6 +446,7 @@ public abstract class Router {
   @NonNull
   public Router setPopsLastView(boolean popsLastView) {
     this.popsLastView = popsLastView;
+    invalidateOwnerSavedState();
     return this;
   }
 
@@ -369,8 +538,22 @@ public abstract class Router {
    */
   @Nullable
   public Controller getControllerWithInstanceId(@NonNull String instanceId) {
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      return controllerIndex.getControllerWithInstanceId(this, instanceId);
+    }
+
     for (RouterTransaction transaction : backstack) {
-      Controller controllerWithId = transaction.controller.findController(instanceId);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        // Lazily restored controllers are instantiated once they are looked up
+        if (instanceId.equals(transaction.controllerInstanceId())) {
+          return transaction.controller();
+        }
+        continue;
+      }
+
+      Controller controllerWithId = controller.findController(instanceId);
       if (controllerWithId != null) {
         return controllerWithId;
       }
@@ -386,9 +569,14 @@ public abstract class Router {
    */
   @Nullable
   public Controller getControllerWithTag(@NonNull String tag) {
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      return controllerIndex.getControllerWithTag(this, tag);
+    }
+
     for (RouterTransaction transaction : backstack) {
       if (tag.equals(transaction.tag())) {
-        return transaction.controller;
+        return transaction.controller();
       }
     }
     return null;
@@ -407,12 +595,28 @@ public abstract class Router {
    */
   @NonNull
   public List<RouterTransaction> getBackstack() {
-    List<RouterTransaction> list = new ArrayList<>(backstack.size());
-    Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
-    while (backstackIterator.hasNext()) {
-      list.add(backstackIterator.next());
-    }
-    return list;
+    return new ArrayList<>(backstack.asList());
+  }
+
+  /**
+   * Returns a live, read-only view of the current backstack, ordered from root to most recently pushed. Unlike
+   * {@link #getBackstack()} nothing is copied, so the view reflects any later change to the backstack. Prefer indexed
+   * access through {@link #getBackstackEntry(int)} on hot paths, as iterating any {@link List} allocates an iterator.
+   */
+  @NonNull
+  public List<RouterTransaction> getBackstackView() {
+    return backstack.asList();
+  }
+
+  /**
+   * Returns the backstack entry at the given position, counted from the root.
+   *
+   * @param index The position of the entry, between 0 and {@link #getBackstackSize()} - 1
+   * @throws IndexOutOfBoundsException if there is no entry at this position
+   */
+  @NonNull
+  public RouterTransaction getBackstackEntry(int index) {
+    return backstack.get(index);
   }
 
   /**
@@ -427,6 +631,20 @@ public abstract class Router {
   public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
     ThreadUtils.ensureMainThread();
 
+    if (!Conductor.isTracingEnabled()) {
+      performSetBackstack(newBackstack, changeHandler);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.setBackstack");
+    try {
+      performSetBackstack(newBackstack, changeHandler);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performSetBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
     List<RouterTransaction> oldTransactions = getBackstack();
     List<RouterTransaction> oldVisibleTransactions = getVisibleTransactions(backstack.iterator());
 
@@ -435,20 +653,23 @@ public abstract class Router {
     ensureNoDuplicateControllers(newBackstack);
 
     backstack.setBackstack(newBackstack);
+    updateControllerIndex(oldTransactions);
 
     List<RouterTransaction> transactionsToBeRemoved = new ArrayList<>();
+    Set<RouterTransaction> newTransactionSet = null;
     for (RouterTransaction oldTransaction : oldTransactions) {
-      boolean contains = false;
-      for (RouterTransaction newTransaction : newBackstack) {
-        if (oldTransaction.controller == newTransaction.controller) {
-          contains = true;
-          break;
+      Controller oldController = oldTransaction.instantiatedController();
+      if (oldController == null) {
+        // Controllers that were never instantiated have nothing to destroy
+        if (newTransactionSet == null) {
+          newTransactionSet = newIdentitySet(newBackstack);
         }
-      }
-
-      if (!contains) {
+        if (!newTransactionSet.contains(oldTransaction)) {
+          oldTransaction.setOnControllerInstantiatedListener(null);
+        }
+      } else if (!backstack.contains(oldController)) {
         // Inform the controller that it will be destroyed soon
-        oldTransaction.controller.isBeingDestroyed = true;
+        oldController.isBeingDestroyed = true;
         transactionsToBeRemoved.add(oldTransaction);
       }
     }
@@ -458,7 +679,7 @@ public abstract class Router {
     while (backstackIterator.hasNext()) {
       RouterTransaction transaction = backstackIterator.next();
       transaction.onAttachedToRouter();
-      setControllerRouter(transaction.controller);
+      setTransactionRouter(transaction);
     }
 
     if (newBackstack.size() > 0) {
@@ -470,14 +691,17 @@ public abstract class Router {
 
       boolean visibleTransactionsChanged = !backstacksAreEqual(newVisibleTransactions, oldVisibleTransactions);
       if (visibleTransactionsChanged) {
+        Set<RouterTransaction> oldVisibleTransactionSet = newIdentitySet(oldVisibleTransactions);
+        Set<RouterTransaction> newVisibleTransactionSet = newIdentitySet(newVisibleTransactions);
+
         RouterTransaction oldRootTransaction = oldVisibleTransactions.size() > 0 ? oldVisibleTransactions.get(0) : null;
         RouterTransaction newRootTransaction = newVisibleTransactions.get(0);
 
         // Replace the old root with the new one
-        if (oldRootTransaction == null || oldRootTransaction.controller != newRootTransaction.controller) {
+        if (oldRootTransaction == null || oldRootTransaction.controller() != newRootTransaction.controller()) {
           // Ensure the existing root controller is fully pushed to the view hierarchy
           if (oldRootTransaction != null) {
-            ControllerChangeHandler.completeHandlerImmediately(oldRootTransaction.controller.getInstanceId());
+            ControllerChangeHandler.completeHandlerImmediately(this, oldRootTransaction.controller());
           }
           performControllerChange(newRootTransaction, oldRootTransaction, newRootRequiresPush, changeHandler);
         }
@@ -485,10 +709,10 @@ public abstract class Router {
         // Remove all visible controllers that were previously on the backstack
         for (int i = oldVisibleTransactions.size() - 1; i > 0; i--) {
           RouterTransaction transaction = oldVisibleTransactions.get(i);
-          if (!newVisibleTransactions.contains(transaction)) {
+          if (!newVisibleTransactionSet.contains(transaction)) {
             ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
             localHandler.setForceRemoveViewOnPush(true);
-            ControllerChangeHandler.completeHandlerImmediately(transaction.controller.getInstanceId());
+            ControllerChangeHandler.completeHandlerImmediately(this, transaction.controller());
             performControllerChange(null, transaction, newRootRequiresPush, localHandler);
           }
         }
@@ -496,7 +720,7 @@ public abstract class Router {
         // Add any new controllers to the backstack
         for (int i = 1; i < newVisibleTransactions.size(); i++) {
           RouterTransaction transaction = newVisibleTransactions.get(i);
-          if (!oldVisibleTransactions.contains(transaction)) {
+          if (!oldVisibleTransactionSet.contains(transaction)) {
             performControllerChange(transaction, newVisibleTransactions.get(i - 1), true, transaction.pushChangeHandler());
           }
         }
@@ -507,7 +731,7 @@ public abstract class Router {
       for (int i = oldVisibleTransactions.size() - 1; i >= 0; i--) {
         RouterTransaction transaction = oldVisibleTransactions.get(i);
         ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
-        ControllerChangeHandler.completeHandlerImmediately(transaction.controller.getInstanceId());
+        ControllerChangeHandler.completeHandlerImmediately(this, transaction.controller());
         performControllerChange(null, transaction, false, localHandler);
       }
     }
@@ -515,20 +739,23 @@ public abstract class Router {
     // Destroy all old controllers that are no longer on the backstack. We don't do this when we initially
     // set the backstack to prevent the possibility that they'll be destroyed before the controller
     // change handler runs.
-    for (RouterTransaction removedTransaction : transactionsToBeRemoved) {
-
+    if (!transactionsToBeRemoved.isEmpty()) {
       // Still need to ensure the controller isn't queued up to be removed later on.
-      boolean willBeRemoved = false;
+      Set<Controller> pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
       for (ChangeTransaction pendingTransaction : pendingControllerChanges) {
-        if (pendingTransaction.from == removedTransaction.controller) {
-          willBeRemoved = true;
+        if (pendingTransaction.from != null) {
+          pendingRemovals.add(pendingTransaction.from);
         }
       }
 
-      if (!willBeRemoved) {
-        removedTransaction.controller.destroy();
+      for (RouterTransaction removedTransaction : transactionsToBeRemoved) {
+        if (!pendingRemovals.contains(removedTransaction.controller())) {
+          removedTransaction.controller().destroy();
+        }
       }
     }
+
+    hibernateIfNeeded();
   }
 
   @SuppressWarnings("WeakerAccess")
@@ -540,7 +767,8 @@ public abstract class Router {
     while (backstackIterator.hasNext()) {
       RouterTransaction transaction = backstackIterator.next();
 
-      if (transaction.controller.getNeedsAttach()) {
+      Controller controller = transaction.instantiatedController();
+      if (controller != null && controller.getNeedsAttach()) {
         ControllerChangeHandler handler = new SwapTabChangeHandler();
         performControllerChange(transaction, from, true, handler);
       }
@@ -554,36 +782,43 @@ public abstract class Router {
 
     List<RouterTransaction> oldTransactions = getBackstack();
 
-    rootTransaction.controller.setNeedsAttach(true);
+    rootTransaction.controller().setNeedsAttach(true);
     List<RouterTransaction> rootTransactions = Collections.singletonList(rootTransaction);
 
     removeAllExceptVisibleAndUnowned();
     ensureOrderedTransactionIndices(rootTransactions);
 
     backstack.setBackstack(rootTransactions);
+    updateControllerIndex(oldTransactions);
 
     // Ensure all new controllers have a valid router set
     Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
     while (backstackIterator.hasNext()) {
       RouterTransaction transaction = backstackIterator.next();
       transaction.onAttachedToRouter();
-      setControllerRouter(transaction.controller);
+      setTransactionRouter(transaction);
     }
 
     // Destroy all old controllers that are no longer on the backstack. We don't do this when we initially
     // set the backstack to prevent the possibility that they'll be destroyed before the controller
     // change handler runs.
     for (RouterTransaction oldTransaction : oldTransactions) {
+      Controller oldController = oldTransaction.instantiatedController();
+      if (oldController == null) {
+        oldTransaction.setOnControllerInstantiatedListener(null);
+        continue;
+      }
+
       boolean contains = false;
       for (RouterTransaction newTransaction : rootTransactions) {
-        if (oldTransaction.controller == newTransaction.controller) {
+        if (oldController == newTransaction.controller()) {
           contains = true;
           break;
         }
       }
 
       if (!contains) {
-        oldTransaction.controller.destroy();
+        oldController.destroy();
       }
     }
   }
@@ -602,8 +837,8 @@ public abstract class Router {
    */
   @SuppressWarnings("WeakerAccess")
   public void addChangeListener(@NonNull ControllerChangeListener changeListener) {
-    if (!changeListeners.contains(changeListener)) {
-      changeListeners.add(changeListener);
+    if (!ArrayUtils.contains(changeListeners, changeListener)) {
+      changeListeners = ArrayUtils.append(changeListeners, changeListener);
     }
   }
 
@@ -614,7 +849,65 @@ public abstract class Router {
    */
   @SuppressWarnings("WeakerAccess")
   public void removeChangeListener(@NonNull ControllerChangeListener changeListener) {
-    changeListeners.remove(changeListener);
+    changeListeners = ArrayUtils.remove(changeListeners, changeListener);
+  }
+
+  /**
+   * Sets the policy deciding which of this Router's {@link Controller}s are hibernated. Controllers that are
+   * visible or attached are never hibernated. Pass {@code null} to stop hibernating controllers, ones that are
+   * already hibernated are restored once they are needed.
+   *
+   * @param policy The policy, or {@code null} to disable hibernation.
+   */
+  @UiThread
+  public void setHibernationPolicy(@Nullable HibernationPolicy policy) {
+    ThreadUtils.ensureMainThread();
+
+    hibernationPolicy = policy;
+    hibernateIfNeeded();
+  }
+
+  @Nullable
+  public HibernationPolicy getHibernationPolicy() {
+    return hibernationPolicy;
+  }
+
+  /**
+   * Sets the metrics navigations of this Router are reported to, in place of the ones set through
+   * {@link Conductor#setNavigationMetrics(NavigationMetrics)}. Child routers don't inherit them.
+   *
+   * @param metrics The metrics to report to, or {@code null} to use the global ones.
+   */
+  public void setNavigationMetrics(@Nullable NavigationMetrics metrics) {
+    navigationMetrics = metrics;
+  }
+
+  /**
+   * Returns the metrics navigations of this Router are reported to, or {@code null} if they aren't timed.
+   */
+  @Nullable
+  public NavigationMetrics getNavigationMetrics() {
+    return navigationMetrics != null ? navigationMetrics : Conductor.getNavigationMetrics();
+  }
+
+  /**
+   * Adds a listener for {@link Controller}s of this Router being hibernated and restored.
+   *
+   * @param listener The listener
+   */
+  public void addHibernationListener(@NonNull HibernationListener listener) {
+    if (!ArrayUtils.contains(hibernationListeners, listener)) {
+      hibernationListeners = ArrayUtils.append(hibernationListeners, listener);
+    }
+  }
+
+  /**
+   * Removes a previously added listener
+   *
+   * @param listener The listener to be removed
+   */
+  public void removeHibernationListener(@NonNull HibernationListener listener) {
+    hibernationListeners = ArrayUtils.remove(hibernationListeners, listener);
   }
 
   /**
@@ -628,10 +921,11 @@ public abstract class Router {
     while (backstackIterator.hasNext()) {
       RouterTransaction transaction = backstackIterator.next();
 
-      if (transaction.controller.getNeedsAttach()) {
+      Controller controller = transaction.instantiatedController();
+      if (controller != null && controller.getNeedsAttach()) {
         performControllerChange(transaction, null, true, new SimpleSwapChangeHandler(false));
       } else {
-        setControllerRouter(transaction.controller);
+        setTransactionRouter(transaction);
       }
     }
   }
@@ -647,9 +941,13 @@ public abstract class Router {
     isActivityStopped = false;
 
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.activityStarted(activity);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.activityStarted(activity);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onActivityStarted(activity);
       }
     }
@@ -657,9 +955,13 @@ public abstract class Router {
 
   public final void onActivityResumed(@NonNull Activity activity) {
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.activityResumed(activity);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.activityResumed(activity);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onActivityResumed(activity);
       }
     }
@@ -667,9 +969,13 @@ public abstract class Router {
 
   public final void onActivityPaused(@NonNull Activity activity) {
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.activityPaused(activity);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.activityPaused(activity);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onActivityPaused(activity);
       }
     }
@@ -677,9 +983,13 @@ public abstract class Router {
 
   public final void onConfigurationChanged(@NonNull Configuration newConfiguration) {
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.configurationChanged(newConfiguration);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.configurationChanged(newConfiguration);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onConfigurationChanged(newConfiguration);
       }
     }
@@ -687,9 +997,13 @@ public abstract class Router {
 
   public final void onActivityStopped(@NonNull Activity activity) {
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.activityStopped(activity);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.activityStopped(activity);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onActivityStopped(activity);
       }
     }
@@ -699,12 +1013,16 @@ public abstract class Router {
 
   public void onActivityDestroyed(@NonNull Activity activity) {
     prepareForContainerRemoval();
-    changeListeners.clear();
+    changeListeners = NO_CHANGE_LISTENERS;
 
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.activityDestroyed(activity);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+      controller.activityDestroyed(activity);
 
-      for (Router childRouter : transaction.controller.getChildRouters()) {
+      for (Router childRouter : controller.getChildRouters()) {
         childRouter.onActivityDestroyed(activity);
       }
     }
@@ -718,14 +1036,33 @@ public abstract class Router {
       }
     }
 
+    for (PreparedTransaction prepared : new ArrayList<>(preparedTransactions.values())) {
+      prepared.discard();
+
+      Controller controller = prepared.getTransaction().instantiatedController();
+      if (controller != null) {
+        controller.activityDestroyed(activity);
+      }
+    }
+
+    if (viewPool != null) {
+      viewPool.clear();
+    }
+
+    // Changes that never completed can't outlive the Activity they were started in
+    for (PendingInflation pendingInflation : new ArrayList<>(pendingInflations.values())) {
+      pendingInflation.cancel();
+    }
+    inProgressChangeHandlers.clear();
+
     container = null;
   }
 
   public void prepareForHostTabAttach() {
     RouterTransaction transaction = backstack.peek();
     if (transaction != null) {
-      transaction.controller.setNeedsAttach(true);
-      transaction.controller.prepareForHostDetach();
+      transaction.controller().setNeedsAttach(true);
+      transaction.controller().prepareForHostDetach();
     }
   }
 
@@ -733,30 +1070,84 @@ public abstract class Router {
     pendingControllerChanges.clear(); // rely on backstack based restoration in rebindIfNeeded
 
     for (RouterTransaction transaction : backstack) {
-      if (ControllerChangeHandler.completeHandlerImmediately(transaction.controller.getInstanceId())) {
-        transaction.controller.setNeedsAttach(true);
+      Controller controller = transaction.instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+
+      // Changes still waiting for a view are dropped, the rebind starts them again
+      if (ControllerChangeHandler.cancelPendingInflation(this, controller)
+          || ControllerChangeHandler.completeHandlerImmediately(this, controller)) {
+        controller.setNeedsAttach(true);
       }
-      transaction.controller.prepareForHostDetach();
+      controller.prepareForHostDetach();
     }
   }
 
   public void saveInstanceState(@NonNull Bundle outState) {
+    if (!Conductor.isTracingEnabled()) {
+      performSaveInstanceState(outState);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.Router.saveInstanceState");
+    try {
+      performSaveInstanceState(outState);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performSaveInstanceState(@NonNull Bundle outState) {
     Bundle backstackState = new Bundle();
     backstack.saveInstanceState(backstackState);
 
-    outState.putParcelable(KEY_BACKSTACK, backstackState);
+    // Child routers are part of the state of their root router, so they share its encoding tables
+    byte[] compactBackstackState = Conductor.isCompactStateEncodingEnabled() && getOwnerController() == null
+        ? CompactStateCodec.encode(backstackState)
+        : null;
+    if (compactBackstackState != null) {
+      outState.putByteArray(KEY_COMPACT_BACKSTACK, compactBackstackState);
+    } else {
+      outState.putParcelable(KEY_BACKSTACK, backstackState);
+    }
     outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
   }
 
   public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
-    Bundle backstackBundle = savedInstanceState.getParcelable(KEY_BACKSTACK);
+    if (!Conductor.isTracingEnabled()) {
+      performRestoreInstanceState(savedInstanceState);
+      return;
+    }
+
+    TraceUtils.beginSection("Conductor.Router.restoreInstanceState");
+    try {
+      performRestoreInstanceState(savedInstanceState);
+    } finally {
+      TraceUtils.endSection();
+    }
+  }
+
+  private void performRestoreInstanceState(@NonNull Bundle savedInstanceState) {
+    byte[] compactBackstackState = savedInstanceState.getByteArray(KEY_COMPACT_BACKSTACK);
+    Bundle backstackBundle = compactBackstackState != null
+        ? CompactStateCodec.decode(compactBackstackState, getClass().getClassLoader())
+        : savedInstanceState.<Bundle>getParcelable(KEY_BACKSTACK);
     //noinspection ConstantConditions
-    backstack.restoreInstanceState(backstackBundle);
+    backstack.restoreInstanceState(backstackBundle, controllerInstantiatedListener);
     popsLastView = savedInstanceState.getBoolean(KEY_POPS_LAST_VIEW);
 
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      controllerIndex.addRouter(this);
+    }
+
     Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
     while (backstackIterator.hasNext()) {
-      setControllerRouter(backstackIterator.next().controller);
+      Controller controller = backstackIterator.next().instantiatedController();
+      if (controller != null) {
+        setControllerRouter(controller);
+      }
     }
   }
 
@@ -802,26 +1193,27 @@ public abstract class Router {
 
   void onContextAvailable() {
     for (RouterTransaction transaction : backstack) {
-      transaction.controller.onContextAvailable();
+      Controller controller = transaction.instantiatedController();
+      if (controller != null) {
+        controller.onContextAvailable();
+      }
     }
   }
 
   @NonNull final List<Controller> getControllers() {
     List<Controller> controllers = new ArrayList<>(backstack.size());
-
-    Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
-    while (backstackIterator.hasNext()) {
-      controllers.add(backstackIterator.next().controller);
+    for (int i = 0; i < backstack.size(); i++) {
+      controllers.add(backstack.get(i).controller());
     }
-
     return controllers;
   }
 
   @Nullable
   public final Boolean handleRequestedPermission(@NonNull String permission) {
     for (RouterTransaction transaction : backstack) {
-      if (transaction.controller.didRequestPermission(permission)) {
-        return transaction.controller.shouldShowRequestPermissionRationale(permission);
+      Controller controller = transaction.instantiatedController();
+      if (controller != null && controller.didRequestPermission(permission)) {
+        return controller.shouldShowRequestPermissionRationale(permission);
       }
     }
     return null;
@@ -846,11 +1238,16 @@ public abstract class Router {
   }
 
   private void performControllerChange(@Nullable RouterTransaction to, @Nullable RouterTransaction from, boolean isPush, @Nullable ControllerChangeHandler changeHandler) {
-    Controller toController = to != null ? to.controller : null;
-    Controller fromController = from != null ? from.controller : null;
+    Controller toController = to != null ? to.controller() : null;
+    Controller fromController = from != null ? from.controller() : null;
     boolean forceDetachDestroy = false;
 
     if (to != null) {
+      PreparedTransaction prepared = preparedTransactions.get(to);
+      if (prepared != null) {
+        prepared.onConsumed();
+      }
+
       to.ensureValidIndex(getTransactionIndexer());
       setControllerRouter(toController);
 
@@ -884,7 +1281,7 @@ public abstract class Router {
         .getSimpleName() + ")");
     }
 
-    final ChangeTransaction transaction = new ChangeTransaction(to, from, isPush, container, changeHandler, new ArrayList<>(changeListeners));
+    final ChangeTransaction transaction = new ChangeTransaction(this, to, from, isPush, container, changeHandler, changeListeners);
 
     if (pendingControllerChanges.size() > 0) {
       // If we already have changes queued up (awaiting full container attach), queue this one up as well so they don't happen
@@ -922,17 +1319,81 @@ public abstract class Router {
   }
 
   protected void pushToBackstack(@NonNull RouterTransaction entry) {
-    if (backstack.contains(entry.controller)) {
+    if (backstack.contains(entry.controller())) {
       throw new IllegalStateException("Trying to push a controller that already exists on the backstack.");
     }
     backstack.push(entry);
+
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      controllerIndex.add(this, entry);
+    }
+  }
+
+  private void removeFromControllerIndex(@NonNull RouterTransaction transaction) {
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      controllerIndex.remove(this, transaction);
+    }
+  }
+
+  private void updateControllerIndex(@NonNull List<RouterTransaction> oldTransactions) {
+    ControllerIndex controllerIndex = getControllerIndex();
+    if (controllerIndex != null) {
+      controllerIndex.updateRouter(this, oldTransactions);
+    }
+  }
+
+  private void hibernateIfNeeded() {
+    if (hibernationPolicy == null || backstack.size() < 2) {
+      return;
+    }
+
+    Set<RouterTransaction> visibleTransactions = newIdentitySet(getVisibleTransactions(backstack.iterator()));
+    Set<Controller> changingControllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
+    for (ChangeTransaction pendingTransaction : pendingControllerChanges) {
+      if (pendingTransaction.to != null) {
+        changingControllers.add(pendingTransaction.to);
+      }
+      if (pendingTransaction.from != null) {
+        changingControllers.add(pendingTransaction.from);
+      }
+    }
+
+    // Deepest first, those are the least likely to be needed again soon
+    int remainingHibernations = hibernationPolicy.getMaxHibernationsPerPass();
+    int size = backstack.size();
+    for (int i = 0; i < size && remainingHibernations > 0; i++) {
+      RouterTransaction transaction = backstack.get(i);
+      int depth = size - 1 - i;
+      Controller controller = transaction.instantiatedController();
+      if (controller == null || visibleTransactions.contains(transaction) || changingControllers.contains(controller)
+        || controller.isAttached() || controller.getNeedsAttach() || controller.isBeingDestroyed()) {
+        continue;
+      }
+
+      if (hibernationPolicy.shouldHibernate(transaction, depth)) {
+        ControllerIndex controllerIndex = getControllerIndex();
+        if (controllerIndex != null) {
+          controllerIndex.onHibernating(transaction);
+        }
+        backstack.hibernate(transaction, controllerInstantiatedListener);
+        hibernatedTransactions.add(transaction);
+        remainingHibernations--;
+
+        for (HibernationListener listener : hibernationListeners) {
+          listener.onHibernated(this, transaction, controller);
+        }
+      }
+    }
   }
 
   private void trackDestroyingController(@NonNull RouterTransaction transaction) {
-    if (!transaction.controller.isDestroyed()) {
-      destroyingControllers.add(transaction.controller);
+    Controller controller = transaction.instantiatedController();
+    if (controller != null && !controller.isDestroyed()) {
+      destroyingControllers.add(controller);
 
-      transaction.controller.addLifecycleListener(new LifecycleListener() {
+      controller.addLifecycleListener(new LifecycleListener() {
         @Override
         public void postDestroy(@NonNull Controller controller) {
           destroyingControllers.remove(controller);
@@ -948,11 +1409,11 @@ public abstract class Router {
   }
 
   public void removeAllExceptVisibleAndUnowned() {
-    List<View> views = new ArrayList<>();
+    Set<View> views = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
 
     for (RouterTransaction transaction : getVisibleTransactions(backstack.iterator())) {
-      if (transaction.controller.getView() != null) {
-        views.add(transaction.controller.getView());
+      if (transaction.controller().getView() != null) {
+        views.add(transaction.controller().getView());
       }
     }
 
@@ -974,32 +1435,44 @@ public abstract class Router {
   // Swap around transaction indices to ensure they don't get thrown out of order by the
   // developer rearranging the backstack at runtime.
   private void ensureOrderedTransactionIndices(List<RouterTransaction> backstack) {
-    List<Integer> indices = new ArrayList<>(backstack.size());
-    for (RouterTransaction transaction : backstack) {
+    int[] indices = new int[backstack.size()];
+    for (int i = 0; i < indices.length; i++) {
+      RouterTransaction transaction = backstack.get(i);
       transaction.ensureValidIndex(getTransactionIndexer());
-      indices.add(transaction.transactionIndex);
+      indices[i] = transaction.transactionIndex;
     }
 
-    Collections.sort(indices);
+    Arrays.sort(indices);
 
-    for (int i = 0; i < backstack.size(); i++) {
-      backstack.get(i).transactionIndex = indices.get(i);
+    for (int i = 0; i < indices.length; i++) {
+      backstack.get(i).transactionIndex = indices[i];
     }
   }
 
   private void ensureNoDuplicateControllers(List<RouterTransaction> backstack) {
-    for (int i = 0; i < backstack.size(); i++) {
-      Controller controller = backstack.get(i).controller;
-      for (int j = i + 1; j < backstack.size(); j++) {
-        if (backstack.get(j).controller == controller) {
-          throw new IllegalStateException("Trying to push the same controller to the backstack more than once.");
-        }
+    Set<Controller> controllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
+    for (RouterTransaction transaction : backstack) {
+      Controller controller = transaction.instantiatedController();
+      if (controller != null && !controllers.add(controller)) {
+        throw new IllegalStateException("Trying to push the same controller to the backstack more than once.");
       }
     }
   }
 
-  private void addRouterViewsToList(@NonNull Router router, @NonNull List<View> list) {
-    for (Controller controller : router.getControllers()) {
+  @NonNull
+  private static Set<RouterTransaction> newIdentitySet(@NonNull List<RouterTransaction> transactions) {
+    Set<RouterTransaction> set = Collections.newSetFromMap(new IdentityHashMap<RouterTransaction, Boolean>());
+    set.addAll(transactions);
+    return set;
+  }
+
+  private void addRouterViewsToList(@NonNull Router router, @NonNull Set<View> list) {
+    for (int i = 0; i < router.backstack.size(); i++) {
+      Controller controller = router.backstack.get(i).instantiatedController();
+      if (controller == null) {
+        continue;
+      }
+
       if (controller.getView() != null) {
         list.add(controller.getView());
       }
@@ -1040,6 +1513,16 @@ public abstract class Router {
     return true;
   }
 
+  private void setTransactionRouter(@NonNull RouterTransaction transaction) {
+    Controller controller = transaction.instantiatedController();
+    if (controller != null) {
+      setControllerRouter(controller);
+    } else {
+      // Done once the controller is instantiated
+      transaction.setOnControllerInstantiatedListener(controllerInstantiatedListener);
+    }
+  }
+
   void setControllerRouter(@NonNull Controller controller) {
     controller.setRouter(this);
     controller.onContextAvailable();
@@ -1058,4 +1541,27 @@ public abstract class Router {
   @NonNull public abstract Router getRootRouter();
   @NonNull abstract TransactionIndexer getTransactionIndexer();
 
+  /**
+   * Returns the index of the root router this router belongs to, or {@code null} if it is not (yet) part of a
+   * router tree, in which case lookups fall back to walking the backstack.
+   */
+  @Nullable abstract ControllerIndex getControllerIndex();
+
+  /**
+   * Returns the controller this router is a child router of, or {@code null} for root routers.
+   */
+  @Nullable Controller getOwnerController() {
+    return null;
+  }
+
+  /**
+   * Drops the cached saved state of the controller owning this router, as this router's saved state changed.
+   */
+  final void invalidateOwnerSavedState() {
+    Controller ownerController = getOwnerController();
+    if (ownerController != null) {
+      ownerController.invalidateSavedStateCache();
+    }
+  }
+
 }
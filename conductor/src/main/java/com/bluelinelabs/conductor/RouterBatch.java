@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.internal.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+/**
+ * A batch of navigation operations on a single {@link Router}, started with {@link Router#beginTransaction()}.
+ * Operations are applied to a working copy of the backstack and only take effect on {@link #commit()}, which
+ * moves the router to the resulting backstack in one step. Only the controllers that end up visible are
+ * inflated, and the change is animated once, so a sequence like pop, pop, push doesn't create or animate
+ * controllers that are discarded right away.
+ */
+public final class RouterBatch {
+
+    private final Router router;
+    private final List<RouterTransaction> originalBackstack;
+    private final List<RouterTransaction> backstack;
+    private final List<RouterTransaction> pushedTransactions = new ArrayList<>();
+    private ControllerChangeHandler changeHandler;
+    private boolean hasChangeHandler;
+    private boolean committed;
+
+    RouterBatch(@NonNull Router router) {
+        this.router = router;
+        originalBackstack = router.getBackstack();
+        backstack = new ArrayList<>(originalBackstack);
+    }
+
+    /**
+     * Pushes a new {@link Controller} to the backstack.
+     *
+     * @param transaction The transaction detailing what should be pushed, including the {@link Controller},
+     * and its push and pop {@link ControllerChangeHandler}, and its tag.
+     */
+    @NonNull
+    public RouterBatch pushController(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+
+        if (transaction.controller().isDestroyed()) {
+            throw new IllegalStateException("Trying to push a controller that has already been destroyed. (" + transaction.controller().getClass()
+                .getSimpleName() + ")");
+        }
+        for (RouterTransaction existingTransaction : backstack) {
+            if (existingTransaction.instantiatedController() == transaction.controller()) {
+                throw new IllegalStateException("Trying to push a controller that already exists on the backstack.");
+            }
+        }
+
+        backstack.add(transaction);
+        pushedTransactions.add(transaction);
+        return this;
+    }
+
+    /**
+     * Pops the top {@link Controller} from the backstack.
+     */
+    @NonNull
+    public RouterBatch popCurrentController() {
+        ensureNotCommitted();
+
+        if (backstack.isEmpty()) {
+            throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
+        }
+        backstack.remove(backstack.size() - 1);
+        return this;
+    }
+
+    /**
+     * Pops the passed {@link Controller} from the backstack, if it is on it.
+     */
+    @NonNull
+    public RouterBatch popController(@NonNull Controller controller) {
+        ensureNotCommitted();
+
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (backstack.get(i).instantiatedController() == controller) {
+                backstack.remove(i);
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the top {@link Controller} with a new {@link Controller}.
+     */
+    @NonNull
+    public RouterBatch replaceTopController(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+
+        if (!backstack.isEmpty()) {
+            backstack.remove(backstack.size() - 1);
+        }
+        return pushController(transaction);
+    }
+
+    /**
+     * Pops all {@link Controller}s until only the root is left.
+     */
+    @NonNull
+    public RouterBatch popToRoot() {
+        ensureNotCommitted();
+
+        while (backstack.size() > 1) {
+            backstack.remove(backstack.size() - 1);
+        }
+        return this;
+    }
+
+    /**
+     * Pops all {@link Controller}s above the topmost one pushed with the passed tag. Does nothing if there is no
+     * such {@link Controller}.
+     */
+    @NonNull
+    public RouterBatch popToTag(@NonNull String tag) {
+        ensureNotCommitted();
+
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (tag.equals(backstack.get(i).tag())) {
+                while (backstack.size() > i + 1) {
+                    backstack.remove(backstack.size() - 1);
+                }
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Removes all {@link Controller}s from the backstack and sets the passed one as the root.
+     */
+    @NonNull
+    public RouterBatch setRoot(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+
+        backstack.clear();
+        return pushController(transaction);
+    }
+
+    /**
+     * Sets the {@link ControllerChangeHandler} used for the resulting change. By default the push handler of the
+     * new top transaction is used if it was pushed by this batch, or the pop handler of the previous top
+     * transaction otherwise.
+     */
+    @NonNull
+    public RouterBatch changeHandler(@Nullable ControllerChangeHandler changeHandler) {
+        ensureNotCommitted();
+
+        this.changeHandler = changeHandler;
+        hasChangeHandler = true;
+        return this;
+    }
+
+    /**
+     * Applies the net effect of all operations of this batch to the router.
+     */
+    @UiThread
+    public void commit() {
+        ThreadUtils.ensureMainThread();
+        ensureNotCommitted();
+        committed = true;
+
+        if (!router.backstack.asList().equals(originalBackstack)) {
+            throw new IllegalStateException("The backstack was changed while this batch was open.");
+        }
+
+        router.setBackstack(backstack, hasChangeHandler ? changeHandler : netChangeHandler());
+
+        // Controllers that were pushed and popped again within this batch never reached the router
+        Set<Controller> controllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
+        for (RouterTransaction transaction : backstack) {
+            Controller controller = transaction.instantiatedController();
+            if (controller != null) {
+                controllers.add(controller);
+            }
+        }
+        for (RouterTransaction transaction : pushedTransactions) {
+            if (!controllers.contains(transaction.controller())) {
+                transaction.controller().destroy();
+            }
+        }
+    }
+
+    @Nullable
+    private ControllerChangeHandler netChangeHandler() {
+        RouterTransaction oldTop = originalBackstack.isEmpty() ? null : originalBackstack.get(originalBackstack.size() - 1);
+        RouterTransaction newTop = backstack.isEmpty() ? null : backstack.get(backstack.size() - 1);
+
+        if (newTop == oldTop) {
+            return null;
+        } else if (newTop != null && pushedTransactions.contains(newTop)) {
+            return newTop.pushChangeHandler();
+        } else {
+            return oldTop != null ? oldTop.popChangeHandler() : null;
+        }
+    }
+
+    private void ensureNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("This batch has already been committed.");
+        }
+    }
+}
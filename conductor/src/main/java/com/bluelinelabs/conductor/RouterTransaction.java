@@ -37,7 +37,10 @@ public class RouterTransaction {
     private static final String KEY_INDEX = "RouterTransaction.transactionIndex";
     private static final String KEY_ATTACHED_TO_ROUTER = "RouterTransaction.attachedToRouter";
 
-    @NonNull final Controller controller;
+    // Null while a lazily restored transaction still holds only the saved state of its controller
+    @Nullable private Controller controller;
+    @Nullable private Bundle controllerBundle;
+    @Nullable private OnControllerInstantiatedListener instantiatedListener;
     private String tag;
 
     private ControllerChangeHandler pushControllerChangeHandler;
@@ -71,21 +74,23 @@ public class RouterTransaction {
     }
 
     RouterTransaction(@NonNull Bundle bundle) {
-        final ControllerFactory controllerFactory = Conductor.getControllerFactory();
+        this(bundle, false);
+    }
 
-        final Bundle controllerBundle = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+    /**
+     * Restores a transaction from its saved state. A lazy transaction keeps the saved state of its controller
+     * and only instantiates the controller the first time it is needed, see {@link #controller()}.
+     */
+    RouterTransaction(@NonNull Bundle bundle, boolean lazy) {
+        controllerBundle = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
         if (controllerBundle == null) {
             throw new Controller.InstantiationException("Unable to instantiate controller from bundle: " +
               "controller bundle is null. Make sure everything is OK.");
         }
 
-        final ClassLoader callerClassLoader = getClass().getClassLoader();
-        if (callerClassLoader == null) {
-            final Exception parent = new NullPointerException("Default ClassLoader object is null");
-            throw new Controller.InstantiationException("Unable to instantiate controller from bundle " + controllerBundle, parent);
+        if (!lazy) {
+            instantiateController();
         }
-
-        controller = Controller.newInstance(controllerFactory, callerClassLoader, controllerBundle);
         pushControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_PUSH_TRANSITION));
         popControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_POP_TRANSITION));
         tag = bundle.getString(KEY_TAG);
@@ -97,11 +102,90 @@ public class RouterTransaction {
         attachedToRouter = true;
     }
 
+    /**
+     * Returns the {@link Controller} of this transaction. Transactions restored lazily instantiate and restore
+     * their controller on the first call.
+     */
     @NonNull
     public Controller controller() {
+        if (controller == null) {
+            instantiateController();
+
+            OnControllerInstantiatedListener listener = instantiatedListener;
+            instantiatedListener = null;
+            if (listener != null) {
+                listener.onControllerInstantiated(this);
+            }
+        }
+        //noinspection ConstantConditions
         return controller;
     }
 
+    /**
+     * Returns whether the {@link Controller} of this transaction exists. This is only false for transactions
+     * that have been restored lazily and whose controller has not been needed yet.
+     */
+    public boolean isControllerInstantiated() {
+        return controller != null;
+    }
+
+    /**
+     * Returns the controller without instantiating it, or null if it has not been instantiated yet.
+     */
+    @Nullable
+    Controller instantiatedController() {
+        return controller;
+    }
+
+    /**
+     * Returns the instance id of the controller, read from its saved state if it has not been instantiated yet.
+     */
+    @NonNull
+    String controllerInstanceId() {
+        if (controller != null) {
+            return controller.getInstanceId();
+        }
+        //noinspection ConstantConditions
+        return Controller.instanceIdFrom(controllerBundle);
+    }
+
+    /**
+     * Sets the listener notified once the controller of a lazily restored transaction has been instantiated.
+     */
+    void setOnControllerInstantiatedListener(@Nullable OnControllerInstantiatedListener listener) {
+        instantiatedListener = controller == null ? listener : null;
+    }
+
+    /**
+     * Saves the state of the controller and destroys it. The controller is restored from that state the next time
+     * it is needed, just like the one of a lazily restored transaction.
+     */
+    void hibernate(@Nullable OnControllerInstantiatedListener listener) {
+        Controller controller = this.controller;
+        if (controller == null) {
+            return;
+        }
+
+        controllerBundle = controller.saveInstanceState();
+        controller.hibernate();
+        this.controller = null;
+        instantiatedListener = listener;
+    }
+
+    private void instantiateController() {
+        final ControllerFactory controllerFactory = Conductor.getControllerFactory();
+
+        final ClassLoader callerClassLoader = getClass().getClassLoader();
+        if (callerClassLoader == null) {
+            final Exception parent = new NullPointerException("Default ClassLoader object is null");
+            throw new Controller.InstantiationException("Unable to instantiate controller from bundle " + controllerBundle, parent);
+        }
+
+        //noinspection ConstantConditions
+        controller = Controller.newInstance(controllerFactory, callerClassLoader, controllerBundle);
+        controllerBundle = null;
+    }
+
     @Nullable
     public String tag() {
         return tag;
@@ -119,7 +203,7 @@ public class RouterTransaction {
 
     @Nullable
     public ControllerChangeHandler pushChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPushHandler();
+        ControllerChangeHandler handler = controller().getOverriddenPushHandler();
         if (handler == null) {
             handler = pushControllerChangeHandler;
         }
@@ -138,7 +222,7 @@ public class RouterTransaction {
 
     @Nullable
     public ControllerChangeHandler popChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPopHandler();
+        ControllerChangeHandler handler = controller().getOverriddenPopHandler();
         if (handler == null) {
             handler = popControllerChangeHandler;
         }
@@ -168,7 +252,8 @@ public class RouterTransaction {
     public Bundle saveInstanceState() {
         Bundle bundle = new Bundle();
 
-        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller.saveInstanceState());
+        // Controllers that were never instantiated still have their state from the last restore
+        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller != null ? controller.saveInstanceState() : controllerBundle);
 
         if (pushControllerChangeHandler != null) {
             bundle.putBundle(KEY_PUSH_TRANSITION, pushControllerChangeHandler.toBundle());
@@ -184,4 +269,10 @@ public class RouterTransaction {
         return bundle;
     }
 
+    /**
+     * Listener for the instantiation of the controller of a lazily restored transaction.
+     */
+    interface OnControllerInstantiatedListener {
+        void onControllerInstantiated(@NonNull RouterTransaction transaction);
+    }
 }
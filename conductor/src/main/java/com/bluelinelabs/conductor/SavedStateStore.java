@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+/**
+ * Storage for the saved state of {@link Router}s outside of the Activity's saved instance state. When set through
+ * {@link Conductor#setSavedStateStore(SavedStateStore)}, the state of each router is written to the store and only
+ * its key is put into the Activity's Bundle, which keeps deep backstacks clear of the binder transaction size limit.
+ * <p>
+ * The state of a router is read back when the router is attached again. Keys that are no longer referenced by any
+ * saved instance state are deleted through {@link #delete(String)}.
+ *
+ * @see FileSavedStateStore
+ */
+public interface SavedStateStore {
+
+    /**
+     * Stores the passed state under the given key, replacing anything stored under it before.
+     * The state shares Bundles with live controllers and keeps changing once this returns, so implementations that
+     * store it later, e.g. on another thread, have to copy or marshal it before returning.
+     *
+     * @return Whether the state has been stored. If not, the state is put into the Activity's Bundle as usual, so
+     *         implementations return false instead of throwing for states they can't store.
+     */
+    @UiThread
+    boolean write(@NonNull String key, @NonNull Bundle state);
+
+    /**
+     * Returns the state stored under the given key, or {@code null} if there is none.
+     */
+    @Nullable @UiThread
+    Bundle read(@NonNull String key);
+
+    /**
+     * Deletes the state stored under the given key, if any.
+     */
+    @UiThread
+    void delete(@NonNull String key);
+}
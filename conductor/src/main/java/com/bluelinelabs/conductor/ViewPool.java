@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Bounded per-class pool of views released by Controllers using {@link Controller.RetainViewMode#POOLED}.
+ * Each root {@link Router} owns one pool, shared by all of its child routers.
+ */
+final class ViewPool {
+
+    private final Map<Class<? extends Controller>, List<View>> views = new HashMap<>();
+
+    /**
+     * Adds a released view to the pool of the given Controller class. The view is dropped if the pool is full.
+     *
+     * @return Whether the view was added to the pool.
+     */
+    boolean release(@NonNull Class<? extends Controller> controllerClass, @NonNull View view) {
+        int maxSize = Conductor.getViewPoolSize();
+        if (maxSize <= 0) {
+            return false;
+        }
+
+        List<View> pooled = views.get(controllerClass);
+        if (pooled == null) {
+            pooled = new ArrayList<>(maxSize);
+            views.put(controllerClass, pooled);
+        }
+
+        if (pooled.size() < maxSize && !pooled.contains(view)) {
+            pooled.add(view);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes and returns a pooled view of the given Controller class, or {@code null} if none is available.
+     * Views that are still attached to a parent, e.g. because their removal is in progress, are skipped. Views
+     * created with a different Context, e.g. a destroyed Activity, are dropped.
+     */
+    @Nullable
+    View acquire(@NonNull Class<? extends Controller> controllerClass, @NonNull Context context) {
+        List<View> pooled = views.get(controllerClass);
+        if (pooled != null) {
+            for (int i = pooled.size() - 1; i >= 0; i--) {
+                View view = pooled.get(i);
+                if (view.getContext() != context) {
+                    pooled.remove(i);
+                } else if (view.getParent() == null) {
+                    pooled.remove(i);
+                    return view;
+                }
+            }
+        }
+        return null;
+    }
+
+    boolean hasView(@NonNull Class<? extends Controller> controllerClass) {
+        List<View> pooled = views.get(controllerClass);
+        if (pooled != null) {
+            for (View view : pooled) {
+                if (view.getParent() == null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean contains(@NonNull Class<? extends Controller> controllerClass, @NonNull View view) {
+        List<View> pooled = views.get(controllerClass);
+        return pooled != null && pooled.contains(view);
+    }
+
+    int size(@NonNull Class<? extends Controller> controllerClass) {
+        List<View> pooled = views.get(controllerClass);
+        return pooled != null ? pooled.size() : 0;
+    }
+
+    void clear() {
+        views.clear();
+    }
+}
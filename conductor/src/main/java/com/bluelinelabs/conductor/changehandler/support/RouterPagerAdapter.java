@@ -27,7 +27,6 @@ import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -132,9 +131,11 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
     @Override
     public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
         Router router = (Router)object;
-        final List<RouterTransaction> backstack = router.getBackstack();
-        for (RouterTransaction transaction : backstack) {
-            if (transaction.controller().getView() == view) {
+        // Called for every page on each layout pass, so walk the backstack without copying it
+        for (int i = 0; i < router.getBackstackSize(); i++) {
+            RouterTransaction transaction = router.getBackstackEntry(i);
+            // Controllers that have not been instantiated yet have no view
+            if (transaction.isControllerInstantiated() && transaction.controller().getView() == view) {
                 return true;
             }
         }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Helpers for copy-on-write listener arrays. The arrays passed in are never modified, so a reference to one is a
+ * snapshot that can be iterated without copying, even while listeners are added or removed.
+ */
+public class ArrayUtils {
+
+    public static boolean contains(@NonNull Object[] array, @NonNull Object element) {
+        return indexOf(array, element) >= 0;
+    }
+
+    /**
+     * Returns a copy of the given array with the element appended.
+     */
+    @NonNull
+    public static <T> T[] append(@NonNull T[] array, @NonNull T element) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = element;
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given array without the element, or the array itself if it doesn't contain it.
+     */
+    @NonNull
+    public static <T> T[] remove(@NonNull T[] array, @NonNull Object element) {
+        int index = indexOf(array, element);
+        if (index < 0) {
+            return array;
+        }
+
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static int indexOf(@NonNull Object[] array, @NonNull Object element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i].equals(element)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
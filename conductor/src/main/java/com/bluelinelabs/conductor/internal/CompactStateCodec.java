@@ -0,0 +1,527 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Compact binary form of saved router state. Conductor's own state is made of a few value types nested in many
+ * small Bundles whose keys and class names repeat for every controller. They are written with interned strings,
+ * repeated small Bundles (like change handler descriptors) are written once and referenced by index afterwards,
+ * and all numbers are varints. Bundles holding anything else, like view hierarchy state or app defined
+ * Parcelables, are marshalled through a single {@link Parcel} appended to the output.
+ * <p>
+ * Decoding restores Bundles with the same keys and values as the ones that were encoded. As the Parcel part is
+ * involved, encoded state can only be decoded by the same build of the app.
+ */
+public final class CompactStateCodec {
+
+    private static final byte MAGIC = (byte)0xC5;
+    private static final byte VERSION = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_TRUE = 4;
+    private static final int TAG_FALSE = 5;
+    private static final int TAG_FLOAT = 6;
+    private static final int TAG_DOUBLE = 7;
+    private static final int TAG_BYTES = 8;
+    private static final int TAG_BUNDLE = 9;
+    private static final int TAG_BUNDLE_DEFINITION = 10;
+    private static final int TAG_BUNDLE_REFERENCE = 11;
+    private static final int TAG_PARCELED_BUNDLE = 12;
+    private static final int TAG_BUNDLE_LIST = 13;
+    private static final int TAG_STRING_LIST = 14;
+    private static final int TAG_EMPTY_LIST = 15;
+
+    // Bundles up to this size that only hold strings and primitives are interned, e.g. change handler descriptors
+    private static final int MAX_INTERNED_BUNDLE_SIZE = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CompactStateCodec() {}
+
+    /**
+     * Encodes the passed Bundle, or returns {@code null} if it holds something that can't be marshalled, like
+     * binder objects or file descriptors.
+     */
+    @Nullable
+    public static byte[] encode(@NonNull Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            Encoder encoder = new Encoder(parcel);
+            encoder.writeBundle(bundle);
+
+            byte[] parcelData = parcel.marshall();
+            Output output = new Output(encoder.body.size + parcelData.length + 8);
+            output.writeByte(MAGIC);
+            output.writeByte(VERSION);
+            output.writeVarint(parcelData.length);
+            output.writeBytes(parcelData, parcelData.length);
+            output.writeBytes(encoder.body.data, encoder.body.size);
+            return output.toByteArray();
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Decodes a Bundle encoded by {@link #encode(Bundle)}.
+     *
+     * @param classLoader The ClassLoader used to read the values that were marshalled through a {@link Parcel}.
+     * @throws IllegalArgumentException If the data wasn't encoded by this version of the codec.
+     */
+    @NonNull
+    public static Bundle decode(@NonNull byte[] data, @NonNull ClassLoader classLoader) {
+        if (data.length < 2 || data[0] != MAGIC || data[1] != VERSION) {
+            throw new IllegalArgumentException("Not a compact state encoded by this version of Conductor");
+        }
+
+        Input input = new Input(data, 2);
+        int parcelLength = input.readVarint();
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, input.position, parcelLength);
+            parcel.setDataPosition(0);
+            input.position += parcelLength;
+
+            Decoder decoder = new Decoder(input, parcel, classLoader);
+            Bundle bundle = decoder.readBundle(input.readVarint());
+            if (bundle == null) {
+                throw new IllegalArgumentException("Compact state doesn't start with a Bundle");
+            }
+            return bundle;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static boolean isCompactValue(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Boolean || value instanceof Float || value instanceof Double
+                || value instanceof byte[] || value instanceof Bundle) {
+            return true;
+        } else if (value instanceof ArrayList) {
+            ArrayList<?> list = (ArrayList<?>)value;
+            if (list.isEmpty()) {
+                return true;
+            }
+
+            Class<?> elementClass = list.get(0) instanceof Bundle ? Bundle.class : String.class;
+            for (Object element : list) {
+                if (!elementClass.isInstance(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Encoder {
+
+        final Output body = new Output(256);
+        private final Parcel parcel;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Map<String, Object>, Integer> internedBundles = new HashMap<>();
+
+        Encoder(@NonNull Parcel parcel) {
+            this.parcel = parcel;
+        }
+
+        void writeBundle(@NonNull Bundle bundle) {
+            boolean compact = true;
+            for (String key : bundle.keySet()) {
+                if (!isCompactValue(bundle.get(key))) {
+                    compact = false;
+                    break;
+                }
+            }
+
+            if (!compact) {
+                body.writeVarint(TAG_PARCELED_BUNDLE);
+                parcel.writeBundle(bundle);
+                return;
+            }
+
+            Map<String, Object> internKey = internKey(bundle);
+            if (internKey == null) {
+                body.writeVarint(TAG_BUNDLE);
+                writeEntries(bundle);
+                return;
+            }
+
+            Integer index = internedBundles.get(internKey);
+            if (index != null) {
+                body.writeVarint(TAG_BUNDLE_REFERENCE);
+                body.writeVarint(index);
+            } else {
+                body.writeVarint(TAG_BUNDLE_DEFINITION);
+                writeEntries(bundle);
+                // Indices are assigned after the entries, matching the order the decoder completes bundles in
+                internedBundles.put(internKey, internedBundles.size());
+            }
+        }
+
+        private void writeEntries(@NonNull Bundle bundle) {
+            body.writeVarint(bundle.size());
+            for (String key : bundle.keySet()) {
+                writeString(key);
+                writeValue(bundle.get(key));
+            }
+        }
+
+        private void writeValue(@Nullable Object value) {
+            if (value == null) {
+                body.writeVarint(TAG_NULL);
+            } else if (value instanceof String) {
+                body.writeVarint(TAG_STRING);
+                writeString((String)value);
+            } else if (value instanceof Integer) {
+                body.writeVarint(TAG_INT);
+                body.writeVarlong(zigZag((Integer)value));
+            } else if (value instanceof Long) {
+                body.writeVarint(TAG_LONG);
+                body.writeVarlong(zigZag((Long)value));
+            } else if (value instanceof Boolean) {
+                body.writeVarint((Boolean)value ? TAG_TRUE : TAG_FALSE);
+            } else if (value instanceof Float) {
+                body.writeVarint(TAG_FLOAT);
+                body.writeFixed(Float.floatToIntBits((Float)value), 4);
+            } else if (value instanceof Double) {
+                body.writeVarint(TAG_DOUBLE);
+                body.writeFixed(Double.doubleToLongBits((Double)value), 8);
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[])value;
+                body.writeVarint(TAG_BYTES);
+                body.writeVarint(bytes.length);
+                body.writeBytes(bytes, bytes.length);
+            } else if (value instanceof Bundle) {
+                writeBundle((Bundle)value);
+            } else {
+                ArrayList<?> list = (ArrayList<?>)value;
+                if (list.isEmpty()) {
+                    body.writeVarint(TAG_EMPTY_LIST);
+                } else if (list.get(0) instanceof Bundle) {
+                    body.writeVarint(TAG_BUNDLE_LIST);
+                    body.writeVarint(list.size());
+                    for (Object element : list) {
+                        writeBundle((Bundle)element);
+                    }
+                } else {
+                    body.writeVarint(TAG_STRING_LIST);
+                    body.writeVarint(list.size());
+                    for (Object element : list) {
+                        writeString((String)element);
+                    }
+                }
+            }
+        }
+
+        private void writeString(@NonNull String string) {
+            Integer index = strings.get(string);
+            if (index != null) {
+                body.writeVarint(index + 1);
+            } else {
+                strings.put(string, strings.size());
+                byte[] bytes = string.getBytes(UTF_8);
+                body.writeVarint(0);
+                body.writeVarint(bytes.length);
+                body.writeBytes(bytes, bytes.length);
+            }
+        }
+
+        /**
+         * Returns a key identifying the content of the passed Bundle if it is small and only holds strings,
+         * primitives and other such Bundles, or {@code null} if it shouldn't be interned.
+         */
+        @Nullable
+        private static Map<String, Object> internKey(@NonNull Bundle bundle) {
+            if (bundle.size() > MAX_INTERNED_BUNDLE_SIZE) {
+                return null;
+            }
+
+            Map<String, Object> key = new HashMap<>();
+            for (String entryKey : bundle.keySet()) {
+                Object value = bundle.get(entryKey);
+                if (value instanceof Bundle) {
+                    value = internKey((Bundle)value);
+                    if (value == null) {
+                        return null;
+                    }
+                } else if (!(value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                        || value instanceof Boolean || value instanceof Float || value instanceof Double)) {
+                    return null;
+                }
+                key.put(entryKey, value);
+            }
+            return key;
+        }
+    }
+
+    private static final class Decoder {
+
+        private final Input input;
+        private final Parcel parcel;
+        private final ClassLoader classLoader;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Bundle> internedBundles = new ArrayList<>();
+
+        Decoder(@NonNull Input input, @NonNull Parcel parcel, @NonNull ClassLoader classLoader) {
+            this.input = input;
+            this.parcel = parcel;
+            this.classLoader = classLoader;
+        }
+
+        @Nullable
+        Bundle readBundle(int tag) {
+            switch (tag) {
+                case TAG_BUNDLE:
+                    return readEntries();
+                case TAG_BUNDLE_DEFINITION:
+                    Bundle bundle = readEntries();
+                    internedBundles.add(bundle);
+                    return copy(bundle);
+                case TAG_BUNDLE_REFERENCE:
+                    return copy(internedBundles.get(input.readVarint()));
+                case TAG_PARCELED_BUNDLE:
+                    return parcel.readBundle(classLoader);
+                default:
+                    return null;
+            }
+        }
+
+        @NonNull
+        private Bundle readEntries() {
+            int size = input.readVarint();
+            Bundle bundle = new Bundle(size);
+            for (int i = 0; i < size; i++) {
+                readEntry(readString(), bundle);
+            }
+            return bundle;
+        }
+
+        private void readEntry(@NonNull String key, @NonNull Bundle bundle) {
+            int tag = input.readVarint();
+            switch (tag) {
+                case TAG_NULL:
+                    bundle.putString(key, null);
+                    break;
+                case TAG_STRING:
+                    bundle.putString(key, readString());
+                    break;
+                case TAG_INT:
+                    bundle.putInt(key, (int)unZigZag(input.readVarlong()));
+                    break;
+                case TAG_LONG:
+                    bundle.putLong(key, unZigZag(input.readVarlong()));
+                    break;
+                case TAG_TRUE:
+                case TAG_FALSE:
+                    bundle.putBoolean(key, tag == TAG_TRUE);
+                    break;
+                case TAG_FLOAT:
+                    bundle.putFloat(key, Float.intBitsToFloat((int)input.readFixed(4)));
+                    break;
+                case TAG_DOUBLE:
+                    bundle.putDouble(key, Double.longBitsToDouble(input.readFixed(8)));
+                    break;
+                case TAG_BYTES:
+                    bundle.putByteArray(key, input.readBytes(input.readVarint()));
+                    break;
+                case TAG_EMPTY_LIST:
+                    bundle.putStringArrayList(key, new ArrayList<String>());
+                    break;
+                case TAG_BUNDLE_LIST:
+                    int bundleCount = input.readVarint();
+                    ArrayList<Bundle> bundles = new ArrayList<>(bundleCount);
+                    for (int i = 0; i < bundleCount; i++) {
+                        bundles.add(readBundle(input.readVarint()));
+                    }
+                    bundle.putParcelableArrayList(key, bundles);
+                    break;
+                case TAG_STRING_LIST:
+                    int stringCount = input.readVarint();
+                    ArrayList<String> strings = new ArrayList<>(stringCount);
+                    for (int i = 0; i < stringCount; i++) {
+                        strings.add(readString());
+                    }
+                    bundle.putStringArrayList(key, strings);
+                    break;
+                default:
+                    Bundle value = readBundle(tag);
+                    if (value == null) {
+                        throw new IllegalArgumentException("Unknown compact state tag " + tag);
+                    }
+                    bundle.putBundle(key, value);
+                    break;
+            }
+        }
+
+        @NonNull
+        private String readString() {
+            int index = input.readVarint();
+            if (index > 0) {
+                return strings.get(index - 1);
+            }
+
+            String string = new String(input.readBytes(input.readVarint()), UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        /**
+         * Interned Bundles are handed out as copies, so the restored state doesn't share mutable Bundles.
+         */
+        @NonNull
+        private static Bundle copy(@NonNull Bundle bundle) {
+            Bundle copy = new Bundle(bundle);
+            for (String key : bundle.keySet()) {
+                Object value = bundle.get(key);
+                if (value instanceof Bundle) {
+                    copy.putBundle(key, copy((Bundle)value));
+                }
+            }
+            return copy;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+
+        byte[] data;
+        int size;
+
+        Output(int capacity) {
+            data = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            data[size++] = (byte)value;
+        }
+
+        void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarlong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                data[size++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte)value;
+        }
+
+        void writeFixed(long value, int byteCount) {
+            ensureCapacity(byteCount);
+            for (int i = 0; i < byteCount; i++) {
+                data[size++] = (byte)(value >>> (8 * i));
+            }
+        }
+
+        void writeBytes(@NonNull byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, data, size, length);
+            size += length;
+        }
+
+        @NonNull
+        byte[] toByteArray() {
+            if (size == data.length) {
+                return data;
+            }
+            byte[] result = new byte[size];
+            System.arraycopy(data, 0, result, 0, size);
+            return result;
+        }
+
+        private void ensureCapacity(int count) {
+            if (size + count > data.length) {
+                byte[] newData = new byte[Math.max(data.length * 2, size + count)];
+                System.arraycopy(data, 0, newData, 0, size);
+                data = newData;
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] data;
+        int position;
+
+        Input(@NonNull byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        int readVarint() {
+            return (int)readVarlong();
+        }
+
+        long readVarlong() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[position++];
+                value |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        long readFixed(int byteCount) {
+            long value = 0;
+            for (int i = 0; i < byteCount; i++) {
+                value |= (long)(data[position++] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        @NonNull
+        byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+    }
+}
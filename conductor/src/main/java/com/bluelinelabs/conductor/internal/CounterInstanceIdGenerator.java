@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import com.bluelinelabs.conductor.InstanceIdGenerator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Default {@link InstanceIdGenerator}. Ids are made of a random nonce picked once per process and a monotonic
+ * counter. The nonce keeps ids unique across process death, since ids restored from a saved state were generated
+ * with another nonce. Unlike {@link java.util.UUID#randomUUID()}, generating an id does not touch
+ * {@link java.security.SecureRandom}.
+ */
+public class CounterInstanceIdGenerator implements InstanceIdGenerator {
+
+    private final String prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    public CounterInstanceIdGenerator() {
+        this(new Random().nextLong() ^ System.currentTimeMillis());
+    }
+
+    CounterInstanceIdGenerator(long nonce) {
+        prefix = Long.toString(nonce & Long.MAX_VALUE, Character.MAX_RADIX) + '-';
+    }
+
+    @NonNull @Override
+    public String nextInstanceId() {
+        return prefix + Long.toString(counter.incrementAndGet(), Character.MAX_RADIX);
+    }
+
+}
@@ -31,7 +31,9 @@ import android.util.SparseArray;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.ActivityHostedRouter;
+import com.bluelinelabs.conductor.Conductor;
 import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.SavedStateStore;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -51,6 +53,10 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     private static final String KEY_PERMISSION_REQUEST_CODES = "LifecycleHandler.permissionRequests";
     private static final String KEY_ACTIVITY_REQUEST_CODES = "LifecycleHandler.activityRequests";
     private static final String KEY_ROUTER_STATE_PREFIX = "LifecycleHandler.routerState";
+    private static final String KEY_ROUTER_STATE_KEY_PREFIX = "LifecycleHandler.routerStateKey";
+
+    // Keys of states in the SavedStateStore, unique across processes without the cost of a random UUID per save
+    private static final CounterInstanceIdGenerator STATE_KEY_GENERATOR = new CounterInstanceIdGenerator();
 
     private Activity activity;
     private boolean hasRegisteredCallbacks;
@@ -64,6 +70,8 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     private ArrayList<PendingPermissionRequest> pendingPermissionRequests = new ArrayList<>();
 
     private final Map<Integer, ActivityHostedRouter> routerMap = new HashMap<>();
+    // Keys of the router states in the SavedStateStore that the last saved instance state refers to
+    private final Map<Integer, String> savedStateKeys = new HashMap<>();
 
     public LifecycleHandler() {
         setRetainInstance(true);
@@ -101,7 +109,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
             router.setHost(this, container);
 
             if (savedInstanceState != null) {
-                Bundle routerSavedState = savedInstanceState.getBundle(KEY_ROUTER_STATE_PREFIX + router.getContainerId());
+                Bundle routerSavedState = getRouterSavedState(router.getContainerId(), savedInstanceState);
                 if (routerSavedState != null) {
                     router.restoreInstanceState(routerSavedState);
                 }
@@ -114,6 +122,49 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         return router;
     }
 
+    @Nullable
+    private Bundle getRouterSavedState(int containerId, @NonNull Bundle savedInstanceState) {
+        String key = savedInstanceState.getString(KEY_ROUTER_STATE_KEY_PREFIX + containerId);
+        SavedStateStore store = Conductor.getSavedStateStore();
+        if (key == null || store == null) {
+            return savedInstanceState.getBundle(KEY_ROUTER_STATE_PREFIX + containerId);
+        }
+
+        savedStateKeys.put(containerId, key);
+        return store.read(key);
+    }
+
+    private void saveRouterState(@NonNull Router router, @NonNull Bundle outState) {
+        Bundle bundle = new Bundle();
+        router.saveInstanceState(bundle);
+
+        int containerId = router.getContainerId();
+        SavedStateStore store = Conductor.getSavedStateStore();
+        String key = store != null ? STATE_KEY_GENERATOR.nextInstanceId() : null;
+        if (key != null && store.write(key, bundle)) {
+            outState.putString(KEY_ROUTER_STATE_KEY_PREFIX + containerId, key);
+        } else {
+            outState.putBundle(KEY_ROUTER_STATE_PREFIX + containerId, bundle);
+            key = null;
+        }
+
+        // Only the latest saved instance state can be restored, so the state it replaces is stale
+        String previousKey = key != null ? savedStateKeys.put(containerId, key) : savedStateKeys.remove(containerId);
+        if (previousKey != null && store != null) {
+            store.delete(previousKey);
+        }
+    }
+
+    private void deleteSavedStates() {
+        SavedStateStore store = Conductor.getSavedStateStore();
+        if (store != null) {
+            for (String key : savedStateKeys.values()) {
+                store.delete(key);
+            }
+        }
+        savedStateKeys.clear();
+    }
+
     @NonNull
     public List<Router> getRouters() {
         return new ArrayList<Router>(routerMap.values());
@@ -180,6 +231,11 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         super.onDestroy();
 
         if (activity != null) {
+            if (activity.isFinishing()) {
+                // A finished Activity is never restored
+                deleteSavedStates();
+            }
+
             activity.getApplication().unregisterActivityLifecycleCallbacks(this);
             activeLifecycleHandlers.remove(activity);
             destroyRouters();
@@ -237,6 +293,16 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         }
     }
 
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+
+        for (Router router : getRouters()) {
+            router.discardPreparedTransactions();
+            router.clearViewPool();
+        }
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -369,9 +435,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
             prepareForHostDetachIfNeeded();
 
             for (Router router : getRouters()) {
-                Bundle bundle = new Bundle();
-                router.saveInstanceState(bundle);
-                outState.putBundle(KEY_ROUTER_STATE_PREFIX + router.getContainerId(), bundle);
+                saveRouterState(router, outState);
             }
         }
     }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Writes {@link Trace} sections for Conductor's work, so it shows up by name in systrace and Perfetto. Callers
+ * check {@link com.bluelinelabs.conductor.Conductor#isTracingEnabled()} first, so names are only built while
+ * tracing is enabled. Sections need API 18, async sections API 29; on older versions nothing is written.
+ */
+public class TraceUtils {
+
+    // Longer section names are rejected by the platform
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    public static void beginSection(@NonNull String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(truncate(name));
+        }
+    }
+
+    /**
+     * Begins a section named after the given operation and class, e.g. {@code Conductor.inflate HomeController}.
+     */
+    public static void beginSection(@NonNull String name, @Nullable Class<?> cls) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(sectionName(name, cls));
+        }
+    }
+
+    public static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Begins an async section, which may end on a later frame. {@link #endAsyncSection(String, int)} must be called
+     * with the same name and cookie.
+     */
+    public static void beginAsyncSection(@NonNull String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    public static void endAsyncSection(@NonNull String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    @NonNull
+    public static String sectionName(@NonNull String name, @Nullable Class<?> cls) {
+        if (cls == null) {
+            return truncate(name);
+        }
+
+        String className = cls.getSimpleName();
+        if (className.length() == 0) {
+            // Anonymous classes have no simple name
+            className = cls.getName().substring(cls.getName().lastIndexOf('.') + 1);
+        }
+        return truncate(name + " " + className);
+    }
+
+    @NonNull
+    private static String truncate(@NonNull String name) {
+        return name.length() > MAX_SECTION_NAME_LENGTH ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.AttachFakingFrameLayout;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AsyncInflationTests {
+
+    private final QueueExecutor executor = new QueueExecutor();
+    private Router router;
+    private TestController root;
+
+    public void createActivityController(Bundle savedInstanceState) {
+        ActivityProxy activityProxy = new ActivityProxy().create(savedInstanceState).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedInstanceState);
+        root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+    }
+
+    @Before
+    public void setup() {
+        Conductor.setInflationExecutor(executor);
+        createActivityController(null);
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setInflationExecutor(null);
+    }
+
+    @Test
+    public void testPushWaitsForView() {
+        AsyncController controller = new AsyncController();
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertNull(controller.getView());
+        assertFalse(controller.isAttached());
+        assertTrue(root.isAttached());
+        assertEquals(0, controller.builds);
+
+        executor.runAll();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, controller.builds);
+        assertEquals(1, controller.binds);
+        assertSame(controller.builtView, controller.getView());
+        assertTrue(controller.isAttached());
+        assertFalse(root.isAttached());
+        assertEquals(0, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testPushOnTopCompletesPendingPush() {
+        AsyncController controller = new AsyncController();
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        TestController top = new TestController();
+        router.pushController(RouterTransaction.with(top)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(1, controller.builds);
+        assertEquals(1, controller.binds);
+        assertTrue(top.isAttached());
+
+        executor.runAll();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, controller.builds);
+        assertTrue(top.isAttached());
+    }
+
+    @Test
+    public void testPopAbortsPendingPush() {
+        AsyncController controller = new AsyncController();
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        executor.runAll();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, controller.builds);
+        assertEquals(0, controller.currentCallState.attachCalls);
+        assertTrue(controller.isDestroyed());
+        assertTrue(root.isAttached());
+        assertEquals(1, router.getBackstackSize());
+    }
+
+    @Test
+    public void testSynchronousInflationUsesBuilder() {
+        AsyncController controller = new AsyncController();
+        router.prepare(RouterTransaction.with(controller)).inflate();
+
+        assertEquals(1, controller.builds);
+        assertEquals(1, controller.binds);
+        assertEquals(0, controller.currentCallState.createViewCalls);
+    }
+
+    public static class AsyncController extends TestController {
+
+        int builds;
+        int binds;
+        View builtView;
+
+        @Nullable
+        @Override
+        protected ViewBuilder onCreateViewBuilder() {
+            return new ViewBuilder() {
+                @NonNull
+                @Override
+                public View build(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+                    builds++;
+                    FrameLayout view = new AttachFakingFrameLayout(inflater.getContext());
+                    view.setId(VIEW_ID);
+                    builtView = view;
+                    return view;
+                }
+            };
+        }
+
+        @Override
+        protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) {
+            binds++;
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            for (Runnable task : new ArrayList<>(tasks)) {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+}
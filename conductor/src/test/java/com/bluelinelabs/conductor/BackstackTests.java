@@ -21,7 +21,15 @@ import com.bluelinelabs.conductor.util.TestController;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class BackstackTests {
 
@@ -82,4 +90,84 @@ public class BackstackTests {
         assertEquals(1, backstack.size());
         assertEquals(transaction1, backstack.peek());
     }
+
+    @Test
+    public void testContains() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController());
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController());
+        RouterTransaction transaction3 = RouterTransaction.with(new TestController());
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+        assertTrue(backstack.contains(transaction1.controller()));
+        assertTrue(backstack.contains(transaction2.controller()));
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == transaction1) {
+                iterator.remove();
+            }
+        }
+        assertFalse(backstack.contains(transaction1.controller()));
+
+        backstack.setBackstack(Arrays.asList(transaction3));
+        assertFalse(backstack.contains(transaction2.controller()));
+        assertTrue(backstack.contains(transaction3.controller()));
+
+        backstack.pop();
+        assertFalse(backstack.contains(transaction3.controller()));
+    }
+
+    @Test
+    public void testNestedIteration() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController());
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController());
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        assertSame(transaction2, iterator.next());
+
+        Iterator<RouterTransaction> nestedIterator = backstack.iterator();
+        assertNotSame(iterator, nestedIterator);
+        assertSame(transaction2, nestedIterator.next());
+        assertSame(transaction1, nestedIterator.next());
+        assertFalse(nestedIterator.hasNext());
+
+        assertSame(transaction1, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        Iterator<RouterTransaction> reverseIterator = backstack.reverseIterator();
+        assertSame(transaction1, reverseIterator.next());
+        reverseIterator.remove();
+        assertSame(transaction2, reverseIterator.next());
+        assertFalse(reverseIterator.hasNext());
+        assertEquals(1, backstack.size());
+        assertSame(transaction2, backstack.get(0));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testPushWhileIterating() {
+        backstack.push(RouterTransaction.with(new TestController()));
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        iterator.next();
+        backstack.push(RouterTransaction.with(new TestController()));
+        iterator.next();
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testRemoveThroughOtherIterator() {
+        backstack.push(RouterTransaction.with(new TestController()));
+        backstack.push(RouterTransaction.with(new TestController()));
+
+        Iterator<RouterTransaction> iterator = backstack.reverseIterator();
+        iterator.next();
+
+        Iterator<RouterTransaction> otherIterator = backstack.iterator();
+        otherIterator.next();
+        otherIterator.remove();
+
+        iterator.remove();
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.Benchmark;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares restoring a backstack whose change handlers are created reflectively against one whose change
+ * handlers have a registered {@link ControllerChangeHandler.ChangeHandlerFactory}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ChangeHandlerRestoreBenchmarkTests {
+
+    private static final int BACKSTACK_SIZE = 200;
+
+    private final List<Bundle> reflectiveTransactions = new ArrayList<>();
+    private final List<Bundle> registeredTransactions = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        new ActivityProxy().create(null).start().resume();
+
+        ControllerChangeHandler.registerFactory(RegisteredChangeHandler.class, new ControllerChangeHandler.ChangeHandlerFactory() {
+            @NonNull
+            @Override
+            public ControllerChangeHandler newInstance() {
+                return new RegisteredChangeHandler();
+            }
+        });
+
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            reflectiveTransactions.add(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(new UnregisteredChangeHandler())
+                    .popChangeHandler(new UnregisteredChangeHandler())
+                    .saveInstanceState());
+
+            registeredTransactions.add(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(new RegisteredChangeHandler())
+                    .popChangeHandler(new RegisteredChangeHandler())
+                    .saveInstanceState());
+        }
+    }
+
+    @Test
+    public void testRestoredHandlerTypes() {
+        for (RouterTransaction transaction : restoreAll(registeredTransactions)) {
+            assertEquals(RegisteredChangeHandler.class, transaction.pushChangeHandler().getClass());
+            assertEquals(RegisteredChangeHandler.class, transaction.popChangeHandler().getClass());
+        }
+
+        for (RouterTransaction transaction : restoreAll(reflectiveTransactions)) {
+            assertEquals(UnregisteredChangeHandler.class, transaction.pushChangeHandler().getClass());
+            assertEquals(UnregisteredChangeHandler.class, transaction.popChangeHandler().getClass());
+        }
+    }
+
+    @Test
+    public void benchmarkRestore() {
+        Benchmark.assumeEnabled();
+
+        Benchmark.measure("restore " + BACKSTACK_SIZE + " transactions, reflective change handlers", new Runnable() {
+            @Override
+            public void run() {
+                restoreAll(reflectiveTransactions);
+            }
+        });
+
+        Benchmark.measure("restore " + BACKSTACK_SIZE + " transactions, registered change handlers", new Runnable() {
+            @Override
+            public void run() {
+                restoreAll(registeredTransactions);
+            }
+        });
+    }
+
+    @NonNull
+    private static List<RouterTransaction> restoreAll(@NonNull List<Bundle> savedTransactions) {
+        List<RouterTransaction> transactions = new ArrayList<>(savedTransactions.size());
+        for (Bundle bundle : savedTransactions) {
+            transactions.add(new RouterTransaction(bundle));
+        }
+        return transactions;
+    }
+
+    public static class UnregisteredChangeHandler extends MockChangeHandler { }
+
+    public static class RegisteredChangeHandler extends MockChangeHandler { }
+}
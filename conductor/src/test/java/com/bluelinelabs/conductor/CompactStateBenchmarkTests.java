@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.Benchmark;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the size and speed of saving and restoring a deep backstack in the compact encoding enabled by
+ * {@link Conductor#setCompactStateEncodingEnabled(boolean)} against the nested Bundle form. The timing run only
+ * happens when benchmarks are enabled, see {@link Benchmark#assumeEnabled()}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CompactStateBenchmarkTests {
+
+    private static final int BACKSTACK_SIZE = 80;
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            router.pushController(RouterTransaction.with(new TestController())
+                    .tag("controller" + i)
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+        }
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setCompactStateEncodingEnabled(false);
+    }
+
+    @Test
+    public void testCompactStateRestoresSameBackstack() {
+        Conductor.setCompactStateEncodingEnabled(true);
+        Bundle savedState = unmarshall(marshall(saveState()));
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertEquals(BACKSTACK_SIZE, restoredRouter.getBackstackSize());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            Controller expected = router.getControllerWithTag("controller" + i);
+            Controller restored = restoredRouter.getControllerWithTag("controller" + i);
+            assertEquals(expected.getInstanceId(), restored.getInstanceId());
+            assertEquals(expected.getClass(), restored.getClass());
+        }
+    }
+
+    @Test
+    public void testNestedStateStillRestoredWhenEnabled() {
+        Bundle savedState = unmarshall(marshall(saveState()));
+        Conductor.setCompactStateEncodingEnabled(true);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertEquals(BACKSTACK_SIZE, restoredRouter.getBackstackSize());
+    }
+
+    @Test
+    public void testCompactStateIsSmaller() {
+        int nestedSize = marshall(saveState()).length;
+        Conductor.setCompactStateEncodingEnabled(true);
+        int compactSize = marshall(saveState()).length;
+
+        assertTrue("Compact state of " + compactSize + " bytes, nested " + nestedSize + " bytes", compactSize < nestedSize);
+    }
+
+    @Test
+    public void benchmarkSaveAndRestore() {
+        Benchmark.assumeEnabled();
+
+        Benchmark.measure("save, marshall and restore " + BACKSTACK_SIZE + " controllers, nested", new SaveAndRestore());
+
+        Conductor.setCompactStateEncodingEnabled(true);
+        Benchmark.measure("save, marshall and restore " + BACKSTACK_SIZE + " controllers, compact", new SaveAndRestore());
+    }
+
+    private Bundle saveState() {
+        Bundle bundle = new Bundle();
+        router.saveInstanceState(bundle);
+        return bundle;
+    }
+
+    private static byte[] marshall(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Bundle unmarshall(byte[] data) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(CompactStateBenchmarkTests.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private class SaveAndRestore implements Runnable {
+        @Override
+        public void run() {
+            Bundle savedState = unmarshall(marshall(saveState()));
+            new ActivityHostedRouter().restoreInstanceState(savedState);
+        }
+    }
+}
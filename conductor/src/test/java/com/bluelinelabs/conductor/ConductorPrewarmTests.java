@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ConductorPrewarmTests {
+
+    @Test
+    public void testPrewarmControllerClasses() throws InterruptedException {
+        List<Class<? extends Controller>> classes = new ArrayList<>();
+        classes.add(TestController.class);
+
+        PrewarmTask task = Conductor.prewarm(classes);
+
+        assertTrue(task.await(5, TimeUnit.SECONDS));
+        assertTrue(task.isDone());
+        assertEquals(Collections.singletonList(TestController.class.getName()), task.getWarmedClassNames());
+        assertTrue(task.getFailedClassNames().isEmpty());
+    }
+
+    @Test
+    public void testPrewarmClassNames() {
+        List<String> classNames = Arrays.asList(
+                TestController.class.getName(),
+                MockChangeHandler.class.getName(),
+                "com.bluelinelabs.conductor.DoesNotExist",
+                String.class.getName()
+        );
+
+        PrewarmTask task = Conductor.prewarm(getClass().getClassLoader(), classNames, new DirectExecutor());
+
+        assertTrue(task.isDone());
+        assertEquals(Arrays.asList(TestController.class.getName(), MockChangeHandler.class.getName()), task.getWarmedClassNames());
+        assertEquals(Arrays.asList("com.bluelinelabs.conductor.DoesNotExist", String.class.getName()), task.getFailedClassNames());
+    }
+
+    @Test
+    public void testPrewarmUsesControllerFactory() {
+        final List<Class<? extends Controller>> prewarmed = new ArrayList<>();
+        Conductor.setControllerFactory(new ControllerFactory() {
+            @Override
+            public void prewarm(Class<? extends Controller> controllerClass) {
+                super.prewarm(controllerClass);
+                prewarmed.add(controllerClass);
+            }
+        });
+
+        try {
+            PrewarmTask task = Conductor.prewarm(getClass().getClassLoader(), Collections.singletonList(TestController.class.getName()), new DirectExecutor());
+
+            assertTrue(task.isDone());
+            assertEquals(Collections.<Class<? extends Controller>>singletonList(TestController.class), prewarmed);
+        } finally {
+            Conductor.setControllerFactory(new ControllerFactory());
+        }
+    }
+
+    @Test
+    public void testPrewarmNotDoneUntilExecuted() {
+        final List<Runnable> pending = new ArrayList<>();
+        PrewarmTask task = Conductor.prewarm(getClass().getClassLoader(), Collections.singletonList(TestController.class.getName()), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pending.add(command);
+            }
+        });
+
+        assertFalse(task.isDone());
+        assertTrue(task.getWarmedClassNames().isEmpty());
+
+        pending.get(0).run();
+
+        assertTrue(task.isDone());
+        assertEquals(1, task.getWarmedClassNames().size());
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+}
@@ -18,11 +18,15 @@ package com.bluelinelabs.conductor;
 
 import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
 import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
 import com.bluelinelabs.conductor.util.TestController;
 
 import org.junit.Test;
 
+import androidx.annotation.NonNull;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ControllerChangeHandlerTests {
 
@@ -52,4 +56,31 @@ public class ControllerChangeHandlerTests {
         assertEquals(fadeChangeHandler.removesFromViewOnPush(), restoredFadeCast.removesFromViewOnPush());
     }
 
+    @Test
+    public void testRegisteredFactoryUsedOnRestore() {
+        final int[] factoryCalls = new int[1];
+        ControllerChangeHandler.registerFactory(RegisteredChangeHandler.class, new ControllerChangeHandler.ChangeHandlerFactory() {
+            @NonNull
+            @Override
+            public ControllerChangeHandler newInstance() {
+                factoryCalls[0]++;
+                return new RegisteredChangeHandler();
+            }
+        });
+
+        RouterTransaction transaction = RouterTransaction.with(new TestController())
+                .pushChangeHandler(new RegisteredChangeHandler())
+                .popChangeHandler(MockChangeHandler.taggedHandler("pop", false));
+        RouterTransaction restoredTransaction = new RouterTransaction(transaction.saveInstanceState());
+
+        assertEquals(1, factoryCalls[0]);
+        assertTrue(restoredTransaction.pushChangeHandler() instanceof RegisteredChangeHandler);
+
+        // Unregistered handlers are still restored reflectively
+        MockChangeHandler restoredPop = (MockChangeHandler)restoredTransaction.popChangeHandler();
+        assertEquals("pop", restoredPop.tag);
+    }
+
+    public static class RegisteredChangeHandler extends MockChangeHandler { }
+
 }
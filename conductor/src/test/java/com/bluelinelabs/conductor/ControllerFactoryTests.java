@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerFactoryTests {
+
+    @Test
+    public void testConstructorsResolvedOnce() {
+        ControllerFactory.Constructors first = ControllerFactory.getConstructors(TestController.class);
+        ControllerFactory.Constructors second = ControllerFactory.getConstructors(TestController.class);
+
+        assertSame(first, second);
+        assertNotNull(first.defaultConstructor);
+        assertNull(first.bundleConstructor);
+        assertTrue(first.canRestore());
+    }
+
+    @Test
+    public void testBundleConstructorResolved() {
+        ControllerFactory.Constructors constructors = ControllerFactory.getConstructors(BundleController.class);
+
+        assertNotNull(constructors.bundleConstructor);
+        assertTrue(constructors.canRestore());
+    }
+
+    @Test
+    public void testMissingConstructorsCached() {
+        ControllerFactory.Constructors first = ControllerFactory.getConstructors(NoRestoreConstructorController.class);
+
+        assertFalse(first.canRestore());
+        assertSame(first, ControllerFactory.getConstructors(NoRestoreConstructorController.class));
+
+        try {
+            new ControllerFactory().newInstance(getClass().getClassLoader(), NoRestoreConstructorController.class.getName(), null);
+            fail("Expected InstantiationException");
+        } catch (Controller.InstantiationException ignored) { }
+    }
+
+    @Test
+    public void testConstructorsResolvedConcurrently() throws InterruptedException {
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicReferenceArray<ControllerFactory.Constructors> results = new AtomicReferenceArray<>(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results.set(index, ControllerFactory.getConstructors(ConcurrentController.class));
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        for (int i = 1; i < threadCount; i++) {
+            assertSame(results.get(0), results.get(i));
+        }
+    }
+
+    @Test
+    public void testNewInstanceWithBundleConstructor() {
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+
+        Controller controller = new ControllerFactory().newInstance(getClass().getClassLoader(), BundleController.class.getName(), args);
+
+        assertTrue(controller instanceof BundleController);
+        assertEquals("value", controller.getArgs().getString("key"));
+    }
+
+    public static class BundleController extends Controller {
+        public BundleController(@Nullable Bundle args) {
+            super(args);
+        }
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            return new View(inflater.getContext());
+        }
+    }
+
+    public static class ConcurrentController extends TestController { }
+
+    public static class NoRestoreConstructorController extends Controller {
+        NoRestoreConstructorController(@Nullable ControllerArgs controllerArgs) {
+            super(controllerArgs);
+        }
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            return new View(inflater.getContext());
+        }
+    }
+}
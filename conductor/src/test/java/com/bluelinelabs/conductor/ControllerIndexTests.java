@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerIndexTests {
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testPushAndPop() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1).tag("1"));
+        router.pushController(RouterTransaction.with(controller2).tag("2"));
+
+        assertEquals(controller1, router.getControllerWithInstanceId(controller1.getInstanceId()));
+        assertEquals(controller2, router.getControllerWithInstanceId(controller2.getInstanceId()));
+        assertEquals(controller1, router.getControllerWithTag("1"));
+        assertEquals(controller2, router.getControllerWithTag("2"));
+
+        router.popController(controller2);
+
+        assertNull(router.getControllerWithInstanceId(controller2.getInstanceId()));
+        assertNull(router.getControllerWithTag("2"));
+        assertEquals(controller1, router.getControllerWithTag("1"));
+
+        Controller controller3 = new TestController();
+        router.replaceTopController(RouterTransaction.with(controller3).tag("3"));
+
+        assertNull(router.getControllerWithInstanceId(controller1.getInstanceId()));
+        assertNull(router.getControllerWithTag("1"));
+        assertEquals(controller3, router.getControllerWithTag("3"));
+    }
+
+    @Test
+    public void testPopFromMiddle() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1).tag("1"));
+        router.pushController(RouterTransaction.with(controller2).tag("2"));
+        router.pushController(RouterTransaction.with(controller3).tag("3"));
+
+        router.popController(controller2);
+
+        assertNull(router.getControllerWithInstanceId(controller2.getInstanceId()));
+        assertNull(router.getControllerWithTag("2"));
+        assertEquals(controller1, router.getControllerWithTag("1"));
+        assertEquals(controller3, router.getControllerWithTag("3"));
+    }
+
+    @Test
+    public void testDuplicateTags() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1).tag("tag"));
+        router.pushController(RouterTransaction.with(controller2).tag("tag"));
+
+        assertEquals(controller2, router.getControllerWithTag("tag"));
+
+        router.popCurrentController();
+
+        assertEquals(controller1, router.getControllerWithTag("tag"));
+    }
+
+    @Test
+    public void testSetBackstack() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        RouterTransaction transaction1 = RouterTransaction.with(controller1).tag("1");
+        RouterTransaction transaction2 = RouterTransaction.with(controller2).tag("2");
+        RouterTransaction transaction3 = RouterTransaction.with(controller3).tag("3");
+
+        router.setBackstack(Arrays.asList(transaction1, transaction2), null);
+
+        assertEquals(controller1, router.getControllerWithTag("1"));
+        assertEquals(controller2, router.getControllerWithTag("2"));
+
+        router.setBackstack(Arrays.asList(transaction3, transaction1), null);
+
+        assertEquals(controller1, router.getControllerWithInstanceId(controller1.getInstanceId()));
+        assertEquals(controller3, router.getControllerWithInstanceId(controller3.getInstanceId()));
+        assertNull(router.getControllerWithInstanceId(controller2.getInstanceId()));
+        assertNull(router.getControllerWithTag("2"));
+        assertEquals(controller3, router.getControllerWithTag("3"));
+
+        router.popToRoot();
+
+        assertNull(router.getControllerWithInstanceId(controller1.getInstanceId()));
+        assertEquals(controller3, router.getControllerWithTag("3"));
+    }
+
+    @Test
+    public void testChildRouters() {
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent)
+          .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Router childRouter1 = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+        Router childRouter2 = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_2));
+
+        Controller child1 = new TestController();
+        Controller child2 = new TestController();
+        childRouter1.setRoot(RouterTransaction.with(child1).tag("child"));
+        childRouter2.setRoot(RouterTransaction.with(child2).tag("child"));
+
+        // Lookups by instance id are limited to the subtree of the router, lookups by tag to the router itself
+        assertEquals(child1, router.getControllerWithInstanceId(child1.getInstanceId()));
+        assertEquals(child1, childRouter1.getControllerWithInstanceId(child1.getInstanceId()));
+        assertNull(childRouter2.getControllerWithInstanceId(child1.getInstanceId()));
+        assertNull(childRouter1.getControllerWithInstanceId(parent.getInstanceId()));
+        assertNull(router.getControllerWithTag("child"));
+        assertEquals(child1, childRouter1.getControllerWithTag("child"));
+        assertEquals(child2, childRouter2.getControllerWithTag("child"));
+
+        parent.removeChildRouter(childRouter1);
+
+        assertNull(router.getControllerWithInstanceId(child1.getInstanceId()));
+        assertEquals(child2, router.getControllerWithInstanceId(child2.getInstanceId()));
+
+        router.popController(parent);
+
+        assertNull(router.getControllerWithInstanceId(child2.getInstanceId()));
+    }
+
+    @Test
+    public void testRestoredChildRouters() {
+        TestController parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+        Controller child = new TestController();
+        childRouter.setRoot(RouterTransaction.with(child).tag("child"));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        Controller restoredChild = restoredRouter.getControllerWithInstanceId(child.getInstanceId());
+        assertNotNull(restoredChild);
+        assertEquals(restoredChild, restoredChild.getRouter().getControllerWithTag("child"));
+        assertNotNull(restoredRouter.getControllerWithInstanceId(parent.getInstanceId()));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.Benchmark;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares restoring a saved backstack through the reflective {@link ControllerFactory} against a factory shaped
+ * like the one generated by {@code @ConductorFactory}, which dispatches on the saved class name.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerRestoreBenchmarkTests {
+
+    private static final int BACKSTACK_SIZE = 80;
+
+    private final List<Bundle> savedTransactions = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        new ActivityProxy().create(null).start().resume();
+
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            RouterTransaction transaction = RouterTransaction.with(i % 2 == 0 ? new TestController() : new OtherTestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler());
+            savedTransactions.add(transaction.saveInstanceState());
+        }
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setControllerFactory(new ControllerFactory());
+    }
+
+    @Test
+    public void testDispatchingFactoryRestoresSameBackstack() {
+        List<RouterTransaction> reflective = restoreAll(new ControllerFactory());
+        List<RouterTransaction> dispatched = restoreAll(new DispatchingControllerFactory());
+
+        assertEquals(reflective.size(), dispatched.size());
+        for (int i = 0; i < reflective.size(); i++) {
+            Controller expected = reflective.get(i).controller();
+            Controller actual = dispatched.get(i).controller();
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getInstanceId(), actual.getInstanceId());
+        }
+    }
+
+    @Test
+    public void benchmarkRestore() {
+        Benchmark.assumeEnabled();
+
+        Benchmark.measure("restore " + BACKSTACK_SIZE + " controllers, reflective factory", new Runnable() {
+            @Override
+            public void run() {
+                restoreAll(new ControllerFactory());
+            }
+        });
+
+        Benchmark.measure("restore " + BACKSTACK_SIZE + " controllers, class name dispatch", new Runnable() {
+            @Override
+            public void run() {
+                restoreAll(new DispatchingControllerFactory());
+            }
+        });
+    }
+
+    private List<RouterTransaction> restoreAll(@NonNull ControllerFactory factory) {
+        Conductor.setControllerFactory(factory);
+
+        List<RouterTransaction> transactions = new ArrayList<>(savedTransactions.size());
+        for (Bundle bundle : savedTransactions) {
+            transactions.add(new RouterTransaction(bundle));
+        }
+        return transactions;
+    }
+
+    public static class OtherTestController extends TestController { }
+
+    /**
+     * Mirrors the shape of a {@code _GeneratedConductorFactory}: known class names are created directly and
+     * everything else falls back to reflection.
+     */
+    private static class DispatchingControllerFactory extends ControllerFactory {
+        @NonNull
+        @Override
+        public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
+            switch (className) {
+                case "com.bluelinelabs.conductor.util.TestController":
+                    return new TestController();
+                case "com.bluelinelabs.conductor.ControllerRestoreBenchmarkTests$OtherTestController":
+                    return new OtherTestController();
+                default:
+                    return super.newInstance(classLoader, className, args);
+            }
+        }
+    }
+}
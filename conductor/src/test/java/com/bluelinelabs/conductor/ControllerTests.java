@@ -34,6 +34,8 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import androidx.annotation.NonNull;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -327,9 +329,9 @@ public class ControllerTests {
         RouterTransaction restoredChildTransaction2 = childRouter.getBackstack().get(1);
 
         assertEquals(childTransaction1.transactionIndex, restoredChildTransaction1.transactionIndex);
-        assertEquals(childTransaction1.controller.getInstanceId(), restoredChildTransaction1.controller.getInstanceId());
+        assertEquals(childTransaction1.controller().getInstanceId(), restoredChildTransaction1.controller().getInstanceId());
         assertEquals(childTransaction2.transactionIndex, restoredChildTransaction2.transactionIndex);
-        assertEquals(childTransaction2.controller.getInstanceId(), restoredChildTransaction2.controller.getInstanceId());
+        assertEquals(childTransaction2.controller().getInstanceId(), restoredChildTransaction2.controller().getInstanceId());
 
         assertTrue(parent.handleBack());
         assertEquals(1, childRouter.getBackstackSize());
@@ -339,6 +341,27 @@ public class ControllerTests {
         assertEquals(0, childRouter.getBackstackSize());
     }
 
+    @Test
+    public void testInstanceIdGenerator() {
+        InstanceIdGenerator defaultGenerator = Conductor.getInstanceIdGenerator();
+        Conductor.setInstanceIdGenerator(new InstanceIdGenerator() {
+            int next;
+
+            @NonNull
+            @Override
+            public String nextInstanceId() {
+                return "custom-" + (++next);
+            }
+        });
+
+        try {
+            assertEquals("custom-1", new TestController().getInstanceId());
+            assertEquals("custom-2", new TestController().getInstanceId());
+        } finally {
+            Conductor.setInstanceIdGenerator(defaultGenerator);
+        }
+    }
+
     private void assertCalls(CallState callState, TestController controller) {
         assertEquals("Expected call counts and controller call counts do not match.", callState, controller.currentCallState);
     }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.HibernationPolicy.HibernationListener;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HibernationTests {
+
+    private static final int BACKSTACK_SIZE = 10;
+    private static final int MAX_LIVE_DEPTH = 3;
+
+    private Router router;
+    private final List<TestController> controllers = new ArrayList<>();
+    private final List<Controller> hibernated = new ArrayList<>();
+    private final List<Controller> rehydrated = new ArrayList<>();
+
+    public void createActivityController(Bundle savedInstanceState) {
+        ActivityProxy activityProxy = new ActivityProxy().create(savedInstanceState).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedInstanceState);
+        router.addHibernationListener(new HibernationListener() {
+            @Override
+            public void onHibernated(@NonNull Router router, @NonNull RouterTransaction transaction, @NonNull Controller controller) {
+                hibernated.add(controller);
+            }
+
+            @Override
+            public void onRehydrated(@NonNull Router router, @NonNull RouterTransaction transaction, @NonNull Controller controller) {
+                rehydrated.add(controller);
+            }
+        });
+    }
+
+    @Before
+    public void setup() {
+        createActivityController(null);
+    }
+
+    @Test
+    public void testNoPolicy() {
+        pushControllers();
+
+        assertTrue(hibernated.isEmpty());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            assertTrue(router.getBackstackEntry(i).isControllerInstantiated());
+        }
+    }
+
+    @Test
+    public void testMaxLiveDepth() {
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(MAX_LIVE_DEPTH));
+        pushControllers();
+
+        assertEquals(BACKSTACK_SIZE, router.getBackstackSize());
+        assertEquals(BACKSTACK_SIZE - MAX_LIVE_DEPTH, hibernated.size());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            boolean live = i >= BACKSTACK_SIZE - MAX_LIVE_DEPTH;
+            assertEquals(live, router.getBackstackEntry(i).isControllerInstantiated());
+            assertEquals(live, !controllers.get(i).isDestroyed());
+        }
+        assertEquals(1, controllers.get(0).currentCallState.destroyCalls);
+    }
+
+    @Test
+    public void testPolicySetLater() {
+        pushControllers();
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(MAX_LIVE_DEPTH));
+
+        assertEquals(BACKSTACK_SIZE - MAX_LIVE_DEPTH, hibernated.size());
+        assertFalse(router.getBackstackEntry(0).isControllerInstantiated());
+    }
+
+    @Test
+    public void testRehydrateOnPop() {
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(1));
+        pushControllers();
+
+        TestController original = controllers.get(BACKSTACK_SIZE - 2);
+        router.popCurrentController();
+
+        RouterTransaction top = router.getBackstackEntry(BACKSTACK_SIZE - 2);
+        assertTrue(top.isControllerInstantiated());
+        assertEquals(1, rehydrated.size());
+
+        TestController restored = (TestController)top.controller();
+        assertSame(restored, rehydrated.get(0));
+        assertNotSame(original, restored);
+        assertEquals(original.getInstanceId(), restored.getInstanceId());
+        assertSame(router, restored.getRouter());
+        assertTrue(restored.isAttached());
+        assertEquals(1, restored.currentCallState.restoreInstanceStateCalls);
+    }
+
+    @Test
+    public void testLookupByTagRehydrates() {
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(MAX_LIVE_DEPTH));
+        pushControllers();
+
+        Controller controller = router.getControllerWithTag("0");
+
+        assertEquals(controllers.get(0).getInstanceId(), controller.getInstanceId());
+        assertEquals(1, rehydrated.size());
+        assertFalse(controller.isAttached());
+    }
+
+    @Test
+    public void testActivityResultForChildOfHibernatedController() {
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(1));
+        TestController parent = new TestController();
+        TestController child = new TestController();
+        router.pushController(RouterTransaction.with(parent).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID))
+                .setRoot(RouterTransaction.with(child));
+        child.registerForActivityResult(1);
+
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        assertSame(parent, hibernated.get(0));
+        assertTrue(child.isDestroyed());
+
+        router.onActivityResult(1, Activity.RESULT_OK, null);
+
+        assertEquals(1, rehydrated.size());
+        TestController restoredChild = (TestController)router.getControllerWithInstanceId(child.getInstanceId());
+        assertNotSame(child, restoredChild);
+        assertEquals(1, restoredChild.currentCallState.onActivityResultCalls);
+        assertEquals(0, child.currentCallState.onActivityResultCalls);
+    }
+
+    @Test
+    public void testSaveRestoreWithHibernatedControllers() {
+        router.setHibernationPolicy(HibernationPolicy.maxLiveDepth(MAX_LIVE_DEPTH));
+        pushControllers();
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertEquals(BACKSTACK_SIZE, restoredRouter.getBackstackSize());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            RouterTransaction transaction = restoredRouter.getBackstackEntry(i);
+            assertEquals(controllers.get(i).getInstanceId(), transaction.controller().getInstanceId());
+            assertEquals(String.valueOf(i), transaction.tag());
+        }
+    }
+
+    @Test
+    public void testHeapBudgetHibernatesDeepestFirst() {
+        pushControllers();
+        // Any heap exceeds this budget, and stays over it as nothing is collected during a pass
+        router.setHibernationPolicy(HibernationPolicy.heapBudget(Float.MIN_VALUE, 1));
+
+        assertEquals(1, hibernated.size());
+        assertSame(controllers.get(0), hibernated.get(0));
+        for (int i = 1; i < BACKSTACK_SIZE; i++) {
+            assertTrue(router.getBackstackEntry(i).isControllerInstantiated());
+        }
+    }
+
+    @Test
+    public void testHeapBudgetHibernationsPerPass() {
+        pushControllers();
+        router.setHibernationPolicy(HibernationPolicy.heapBudget(Float.MIN_VALUE, MAX_LIVE_DEPTH, 3));
+
+        assertEquals(3, hibernated.size());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            assertEquals(i >= 3, router.getBackstackEntry(i).isControllerInstantiated());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxLiveDepth() {
+        HibernationPolicy.maxLiveDepth(0);
+    }
+
+    private void pushControllers() {
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            TestController controller = new TestController();
+            controllers.add(controller);
+            router.pushController(RouterTransaction.with(controller)
+                    .tag(String.valueOf(i))
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InProgressChangeHandlerTests {
+
+    private ActivityProxy activityProxy;
+
+    private Router createRouter() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new TestController()));
+        return router;
+    }
+
+    @Test
+    public void testChangeTrackedOnOwningRouter() {
+        Router router = createRouter();
+        DeferredChangeHandler handler = new DeferredChangeHandler();
+        TestController controller = new TestController();
+        router.pushController(RouterTransaction.with(controller).pushChangeHandler(handler));
+
+        assertEquals(1, router.inProgressChangeHandlers.size());
+        assertSame(handler, router.inProgressChangeHandlers.get(controller).changeHandler);
+
+        handler.finish();
+        assertTrue(router.inProgressChangeHandlers.isEmpty());
+        assertEquals(0, handler.completeImmediatelyCalls);
+    }
+
+    @Test
+    public void testOtherActivityDoesNotTouchChange() {
+        Router firstRouter = createRouter();
+        DeferredChangeHandler handler = new DeferredChangeHandler();
+        TestController controller = new TestController();
+        firstRouter.pushController(RouterTransaction.with(controller).pushChangeHandler(handler));
+
+        Router secondRouter = createRouter();
+        secondRouter.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        secondRouter.popToRoot();
+
+        assertEquals(0, handler.completeImmediatelyCalls);
+        assertEquals(1, firstRouter.inProgressChangeHandlers.size());
+        assertTrue(secondRouter.inProgressChangeHandlers.isEmpty());
+    }
+
+    @Test
+    public void testPushOnTopCompletesChange() {
+        Router router = createRouter();
+        DeferredChangeHandler handler = new DeferredChangeHandler();
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(handler));
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(1, handler.completeImmediatelyCalls);
+        assertTrue(router.inProgressChangeHandlers.isEmpty());
+    }
+
+    @Test
+    public void testActivityDestroyClearsChanges() {
+        Router router = createRouter();
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(new DeferredChangeHandler()));
+        assertFalse(router.inProgressChangeHandlers.isEmpty());
+
+        activityProxy.pause().stop(true).destroy();
+
+        assertTrue(router.inProgressChangeHandlers.isEmpty());
+        assertTrue(router.pendingInflations.isEmpty());
+    }
+
+    public static class DeferredChangeHandler extends ControllerChangeHandler {
+
+        int completeImmediatelyCalls;
+        private ControllerChangeCompletedListener changeListener;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            if (to != null && to.getParent() == null) {
+                container.addView(to);
+            }
+            this.changeListener = changeListener;
+        }
+
+        @Override
+        public void completeImmediately() {
+            completeImmediatelyCalls++;
+            finish();
+        }
+
+        @Override
+        public boolean removesFromViewOnPush() {
+            return false;
+        }
+
+        @Override
+        public boolean isReusable() {
+            return true;
+        }
+
+        void finish() {
+            if (changeListener != null) {
+                ControllerChangeCompletedListener listener = changeListener;
+                changeListener = null;
+                listener.onChangeCompleted();
+            }
+        }
+    }
+}
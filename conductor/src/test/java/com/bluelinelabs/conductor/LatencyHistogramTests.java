@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10, histogram.getMax());
+        assertEquals(5.5, histogram.getMean(), 0.0001);
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < histogram.getBucketCount() - 1; i++) {
+            assertEquals(histogram.getBucketUpperBound(i) + 1, histogram.getBucketLowerBound(i + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(histogram.getBucketLowerBound(i)));
+            assertEquals(i, LatencyHistogram.bucketIndex(histogram.getBucketUpperBound(i)));
+        }
+    }
+
+    @Test
+    public void testLargeValuesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = { 100, 1_000, 16_667, 250_000, 3_000_000 };
+        for (long value : values) {
+            histogram.reset();
+            histogram.record(value);
+            histogram.record(value + 1_000_000_000L);
+
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value);
+            assertTrue(reported - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void testHugeAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.getCountAtBucket(0));
+        assertEquals(1, histogram.getCountAtBucket(histogram.getBucketCount() - 1));
+        assertEquals(0, histogram.getMin());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void testCopyAndAdd() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(40);
+        LatencyHistogram copy = histogram.copy();
+        histogram.reset();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(1, copy.getTotalCount());
+
+        histogram.record(2000);
+        histogram.add(copy);
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(40, histogram.getMin());
+        assertEquals(2000, histogram.getMax());
+    }
+}
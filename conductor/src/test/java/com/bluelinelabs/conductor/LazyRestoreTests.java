@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class LazyRestoreTests {
+
+    private static final int BACKSTACK_SIZE = 10;
+
+    private final List<String> instanceIds = new ArrayList<>();
+    private final CountingControllerFactory controllerFactory = new CountingControllerFactory();
+    private Bundle savedState;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            TestController controller = new TestController();
+            instanceIds.add(controller.getInstanceId());
+            router.pushController(RouterTransaction.with(controller)
+                    .tag(String.valueOf(i))
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+        }
+
+        savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Conductor.setControllerFactory(controllerFactory);
+        Conductor.setLazyRestoreEnabled(true);
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setLazyRestoreEnabled(false);
+        Conductor.setControllerFactory(new ControllerFactory());
+    }
+
+    @Test
+    public void testOnlyVisibleControllerInstantiated() {
+        Router router = restore();
+
+        assertEquals(BACKSTACK_SIZE, router.getBackstackSize());
+        assertEquals(1, controllerFactory.instantiations);
+        assertTrue(router.getBackstackEntry(BACKSTACK_SIZE - 1).isControllerInstantiated());
+        assertFalse(router.getBackstackEntry(0).isControllerInstantiated());
+    }
+
+    @Test
+    public void testVisibleControllersBelowTopInstantiated() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.noRemoveViewOnPushHandler()));
+
+        Bundle state = new Bundle();
+        router.saveInstanceState(state);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(state);
+
+        assertEquals(2, controllerFactory.instantiations);
+        assertTrue(restoredRouter.getBackstackEntry(1).isControllerInstantiated());
+        assertFalse(restoredRouter.getBackstackEntry(0).isControllerInstantiated());
+    }
+
+    @Test
+    public void testLookupByTagInstantiates() {
+        Router router = restore();
+
+        Controller controller = router.getControllerWithTag("3");
+
+        assertNotNull(controller);
+        assertEquals(instanceIds.get(3), controller.getInstanceId());
+        assertSame(router, controller.getRouter());
+        assertEquals(2, controllerFactory.instantiations);
+        assertTrue(router.getBackstackEntry(3).isControllerInstantiated());
+    }
+
+    @Test
+    public void testLookupByInstanceIdInstantiates() {
+        Router router = restore();
+
+        Controller controller = router.getControllerWithInstanceId(instanceIds.get(5));
+
+        assertNotNull(controller);
+        assertSame(controller, router.getBackstackEntry(5).controller());
+        assertEquals(2, controllerFactory.instantiations);
+    }
+
+    @Test
+    public void testPopInstantiatesNewTop() {
+        Router router = restore();
+        Controller top = router.getBackstackEntry(BACKSTACK_SIZE - 1).controller();
+
+        router.popController(top);
+
+        assertEquals(2, controllerFactory.instantiations);
+        assertEquals(BACKSTACK_SIZE - 1, router.getBackstackSize());
+        assertEquals(instanceIds.get(BACKSTACK_SIZE - 2), router.getBackstackEntry(BACKSTACK_SIZE - 2).controller().getInstanceId());
+    }
+
+    @Test
+    public void testSetRootDoesNotInstantiateRemovedControllers() {
+        Router router = restore();
+
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        assertEquals(1, router.getBackstackSize());
+        assertEquals(1, controllerFactory.instantiations);
+    }
+
+    @Test
+    public void testSaveKeepsUninstantiatedState() {
+        Router router = restore();
+
+        Bundle state = new Bundle();
+        router.saveInstanceState(state);
+        Conductor.setLazyRestoreEnabled(false);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(state);
+
+        assertEquals(BACKSTACK_SIZE, restoredRouter.getBackstackSize());
+        for (int i = 0; i < BACKSTACK_SIZE; i++) {
+            RouterTransaction transaction = restoredRouter.getBackstackEntry(i);
+            assertTrue(transaction.isControllerInstantiated());
+            assertEquals(instanceIds.get(i), transaction.controller().getInstanceId());
+            assertEquals(String.valueOf(i), transaction.tag());
+        }
+    }
+
+    private Router restore() {
+        Router router = new ActivityHostedRouter();
+        router.restoreInstanceState(savedState);
+        return router;
+    }
+
+    private static class CountingControllerFactory extends ControllerFactory {
+        int instantiations;
+
+        @NonNull
+        @Override
+        public Controller newInstance(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Object args) {
+            instantiations++;
+            return super.newInstance(classLoader, className, args);
+        }
+    }
+}
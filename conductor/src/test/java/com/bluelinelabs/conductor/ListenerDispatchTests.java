@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.Benchmark;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ListenerDispatchTests {
+
+    private static final int LISTENER_COUNT = 16;
+    private static final int CYCLES_PER_ROUND = 20;
+
+    private Router router;
+    private TestController root;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+    }
+
+    @Test
+    public void testListenerRemovedDuringDispatchStillSeesSnapshot() {
+        final List<String> calls = new ArrayList<>();
+        final LifecycleListener second = new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                calls.add("second");
+            }
+        };
+        LifecycleListener first = new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                calls.add("first");
+                controller.removeLifecycleListener(this);
+                controller.removeLifecycleListener(second);
+                controller.addLifecycleListener(new LifecycleListener() {
+                    @Override
+                    public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                        calls.add("added");
+                    }
+                });
+            }
+        };
+
+        TestController controller = new TestController();
+        controller.addLifecycleListener(first);
+        controller.addLifecycleListener(second);
+        controller.addLifecycleListener(first);
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(2, calls.size());
+        assertEquals("first", calls.get(0));
+        assertEquals("second", calls.get(1));
+    }
+
+    @Test
+    public void testSteadyStatePushPopDoesNotCopyListeners() {
+        Assume.assumeTrue(Benchmark.isAllocationCountingSupported());
+
+        long withoutListeners = Benchmark.measureAllocations("push/pop without listeners", 5, 15, pushPopCycles());
+
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            root.addLifecycleListener(new LifecycleListener() { });
+            router.addChangeListener(new NoOpChangeListener());
+        }
+        long withListeners = Benchmark.measureAllocations("push/pop with " + LISTENER_COUNT + " listeners", 5, 15, pushPopCycles());
+
+        // Copying the listeners for every callback costs well over a kilobyte per cycle at this listener count
+        long extraPerCycle = (withListeners - withoutListeners) / CYCLES_PER_ROUND;
+        assertTrue("Listener dispatch allocated " + extraPerCycle + " bytes per push/pop", extraPerCycle < 256);
+    }
+
+    private Runnable pushPopCycles() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < CYCLES_PER_ROUND; i++) {
+                    router.pushController(RouterTransaction.with(new TestController())
+                            .pushChangeHandler(MockChangeHandler.defaultHandler())
+                            .popChangeHandler(MockChangeHandler.defaultHandler()));
+                    router.popCurrentController();
+                }
+            }
+        };
+    }
+
+    private static class NoOpChangeListener implements ControllerChangeListener {
+        @Override
+        public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) { }
+
+        @Override
+        public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) { }
+    }
+}
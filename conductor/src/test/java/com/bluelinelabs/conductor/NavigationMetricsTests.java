@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.NavigationMetrics.Phase;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NavigationMetricsTests {
+
+    private Router router;
+    private final RecordingMetrics metrics = new RecordingMetrics();
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new TestController()));
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setNavigationMetrics(null);
+    }
+
+    @Test
+    public void testPushReportsPhasesInOrder() {
+        router.setNavigationMetrics(metrics);
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(4, metrics.phases.size());
+        assertEquals(Phase.CREATE_VIEW, metrics.phases.get(0));
+        assertEquals(Phase.CHANGE_STARTED, metrics.phases.get(1));
+        assertEquals(Phase.CHANGE_ENDED, metrics.phases.get(2));
+        assertEquals(Phase.FIRST_FRAME, metrics.phases.get(3));
+        assertTrue(metrics.pushes.get(0));
+        assertTrue(metrics.elapsedNanos.get(2) >= metrics.elapsedNanos.get(0));
+    }
+
+    @Test
+    public void testHandleBackReportsPop() {
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        Conductor.setNavigationMetrics(metrics);
+
+        assertTrue(router.handleBack());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertTrue(metrics.phases.contains(Phase.CHANGE_ENDED));
+        for (boolean isPush : metrics.pushes) {
+            assertFalse(isPush);
+        }
+        for (Class<? extends Controller> controllerClass : metrics.classes) {
+            assertEquals(TestController.class, controllerClass);
+        }
+    }
+
+    @Test
+    public void testNothingReportedWithoutMetrics() {
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.setNavigationMetrics(metrics);
+        router.popCurrentController();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertTrue(metrics.phases.isEmpty());
+    }
+
+    @Test
+    public void testHistogramMetricsSnapshot() {
+        HistogramNavigationMetrics histogramMetrics = new HistogramNavigationMetrics();
+        router.setNavigationMetrics(histogramMetrics);
+        for (int i = 0; i < 3; i++) {
+            router.pushController(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+            router.popCurrentController();
+        }
+
+        List<HistogramNavigationMetrics.Entry> entries = histogramMetrics.snapshotAndReset();
+        boolean foundChangeEnded = false;
+        for (HistogramNavigationMetrics.Entry entry : entries) {
+            assertEquals(TestController.class, entry.getControllerClass());
+            assertTrue(entry.isPush());
+            if (entry.getPhase() == Phase.CHANGE_ENDED) {
+                assertEquals(3, entry.getHistogram().getTotalCount());
+                foundChangeEnded = true;
+            }
+        }
+        assertTrue(foundChangeEnded);
+        assertTrue(histogramMetrics.snapshot().isEmpty());
+    }
+
+    private static class RecordingMetrics implements NavigationMetrics {
+
+        final List<Class<? extends Controller>> classes = new ArrayList<>();
+        final List<Boolean> pushes = new ArrayList<>();
+        final List<Phase> phases = new ArrayList<>();
+        final List<Long> elapsedNanos = new ArrayList<>();
+
+        @Override
+        public void onNavigationPhase(@NonNull Class<? extends Controller> controllerClass, boolean isPush, @NonNull Phase phase, long elapsedNanos) {
+            classes.add(controllerClass);
+            pushes.add(isPush);
+            phases.add(phase);
+            this.elapsedNanos.add(elapsedNanos);
+        }
+    }
+}
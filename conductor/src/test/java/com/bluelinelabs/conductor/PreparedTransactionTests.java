@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.View;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PreparedTransactionTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    public void createActivityController(Bundle savedInstanceState) {
+        activityProxy = new ActivityProxy().create(savedInstanceState).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedInstanceState);
+        router.setRoot(RouterTransaction.with(new TestController()));
+    }
+
+    @Before
+    public void setup() {
+        createActivityController(null);
+    }
+
+    @Test
+    public void testPrepareMakesContextAvailable() {
+        TestController controller = new TestController();
+        PreparedTransaction prepared = router.prepare(RouterTransaction.with(controller));
+
+        assertSame(router, controller.getRouter());
+        assertEquals(1, controller.currentCallState.contextAvailableCalls);
+        assertFalse(prepared.isDone());
+        assertFalse(prepared.isViewPrepared());
+    }
+
+    @Test
+    public void testPrepareTwiceReturnsSameHandle() {
+        RouterTransaction transaction = RouterTransaction.with(new TestController());
+
+        assertSame(router.prepare(transaction), router.prepare(transaction));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPrepareControllerOnBackstack() {
+        router.prepare(router.getBackstack().get(0));
+    }
+
+    @Test
+    public void testPushUsesPreparedView() {
+        TestController controller = new TestController();
+        RouterTransaction transaction = RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler());
+        PreparedTransaction prepared = router.prepare(transaction);
+
+        prepared.inflate();
+        View preparedView = controller.getView();
+        assertNotNull(preparedView);
+        assertTrue(prepared.isViewPrepared());
+        assertFalse(controller.isAttached());
+
+        router.pushController(transaction);
+
+        assertTrue(prepared.isDone());
+        assertTrue(controller.isAttached());
+        assertSame(preparedView, controller.getView());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testDiscardDropsView() {
+        TestController controller = new TestController();
+        RouterTransaction transaction = RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler());
+        PreparedTransaction prepared = router.prepare(transaction);
+        prepared.inflate();
+
+        prepared.discard();
+
+        assertTrue(prepared.isDone());
+        assertFalse(prepared.isViewPrepared());
+        assertNull(controller.getView());
+        assertEquals(1, controller.currentCallState.destroyViewCalls);
+
+        router.pushController(transaction);
+
+        assertTrue(controller.isAttached());
+        assertEquals(2, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testDiscardReleasesContext() {
+        TestController controller = new TestController();
+        PreparedTransaction prepared = router.prepare(RouterTransaction.with(controller));
+        prepared.inflate();
+
+        prepared.discard();
+
+        assertNull(controller.getRouter());
+        assertNull(controller.getActivity());
+        assertEquals(1, controller.currentCallState.contextUnavailableCalls);
+
+        activityProxy.pause().stop(false).destroy();
+
+        assertNull(controller.getActivity());
+        assertEquals(1, controller.currentCallState.contextAvailableCalls);
+        assertEquals(1, controller.currentCallState.contextUnavailableCalls);
+    }
+
+    @Test
+    public void testActivityDestroyedWithPreparedTransaction() {
+        TestController controller = new TestController();
+        PreparedTransaction prepared = router.prepare(RouterTransaction.with(controller));
+        prepared.inflate();
+
+        activityProxy.pause().stop(false).destroy();
+
+        assertTrue(prepared.isDone());
+        assertNull(controller.getActivity());
+        assertEquals(1, controller.currentCallState.contextUnavailableCalls);
+    }
+
+    @Test
+    public void testDiscardedAfterTimeout() {
+        TestController controller = new TestController();
+        PreparedTransaction prepared = router.prepare(RouterTransaction.with(controller), 100);
+        prepared.inflate();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertTrue(prepared.isDone());
+        assertNull(controller.getView());
+        assertNull(controller.getRouter());
+        assertEquals(1, controller.currentCallState.contextUnavailableCalls);
+    }
+
+    @Test
+    public void testDiscardPreparedTransactions() {
+        TestController controller = new TestController();
+        PreparedTransaction prepared = router.prepare(RouterTransaction.with(controller));
+        prepared.inflate();
+
+        router.discardPreparedTransactions();
+
+        assertTrue(prepared.isDone());
+        assertNull(controller.getView());
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RouterBatchTests {
+
+    private Router router;
+    private int changeStarts;
+    private int changeCompletions;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testPopPopPushCommitsSingleChange() {
+        TestController root = new TestController();
+        TestController second = new TestController();
+        TestController third = new TestController();
+        TestController next = new TestController();
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(second).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(third).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        countChanges();
+
+        router.beginTransaction()
+            .popCurrentController()
+            .popCurrentController()
+            .pushController(RouterTransaction.with(next)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()))
+            .commit();
+
+        assertEquals(1, changeStarts);
+        assertEquals(1, changeCompletions);
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(2, backstack.size());
+        assertSame(root, backstack.get(0).controller());
+        assertSame(next, backstack.get(1).controller());
+
+        assertTrue(next.isAttached());
+        assertEquals(1, next.currentCallState.createViewCalls);
+        assertFalse(root.isAttached());
+        assertTrue(second.isDestroyed());
+        assertTrue(third.isDestroyed());
+        assertEquals(1, second.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testPushThenPopNeverCreatesView() {
+        TestController root = new TestController();
+        TestController transientController = new TestController();
+
+        router.setRoot(RouterTransaction.with(root));
+        countChanges();
+
+        router.beginTransaction()
+            .pushController(RouterTransaction.with(transientController).pushChangeHandler(MockChangeHandler.defaultHandler()))
+            .popCurrentController()
+            .commit();
+
+        assertEquals(0, changeStarts);
+        assertEquals(0, transientController.currentCallState.createViewCalls);
+        assertTrue(transientController.isDestroyed());
+        assertEquals(1, transientController.currentCallState.destroyCalls);
+        assertTrue(root.isAttached());
+        assertEquals(1, router.getBackstackSize());
+    }
+
+    @Test
+    public void testPopToTag() {
+        TestController root = new TestController();
+        TestController second = new TestController();
+        TestController third = new TestController();
+
+        router.setRoot(RouterTransaction.with(root).tag("root"));
+        router.pushController(RouterTransaction.with(second).tag("second").pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(third).pushChangeHandler(MockChangeHandler.defaultHandler())
+            .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.beginTransaction()
+            .popToTag("missing")
+            .popToTag("second")
+            .commit();
+
+        assertEquals(2, router.getBackstackSize());
+        assertTrue(second.isAttached());
+        assertTrue(third.isDestroyed());
+    }
+
+    @Test
+    public void testSetRootReplacesBackstack() {
+        TestController root = new TestController();
+        TestController second = new TestController();
+        TestController newRoot = new TestController();
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(second).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.beginTransaction()
+            .setRoot(RouterTransaction.with(newRoot))
+            .changeHandler(MockChangeHandler.defaultHandler())
+            .commit();
+
+        assertEquals(1, router.getBackstackSize());
+        assertTrue(newRoot.isAttached());
+        assertTrue(root.isDestroyed());
+        assertTrue(second.isDestroyed());
+    }
+
+    @Test
+    public void testCommitTwiceThrows() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        RouterBatch batch = router.beginTransaction();
+        batch.commit();
+
+        try {
+            batch.commit();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void testPopOnEmptyBatchThrows() {
+        try {
+            router.beginTransaction().popCurrentController();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertFalse(router.hasRootController());
+    }
+
+    @Test
+    public void testPushExistingControllerThrows() {
+        TestController root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+
+        try {
+            router.beginTransaction().pushController(RouterTransaction.with(root));
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    private void countChanges() {
+        router.addChangeListener(new ControllerChangeListener() {
+            @Override
+            public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+                changeStarts++;
+            }
+
+            @Override
+            public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+                changeCompletions++;
+            }
+        });
+    }
+}
@@ -247,6 +247,34 @@ public class RouterTests {
         assertEquals(topTransaction, fetchedBackstack.get(2));
     }
 
+    @Test
+    public void testBackstackView() {
+        RouterTransaction rootTransaction = RouterTransaction.with(new TestController());
+        RouterTransaction topTransaction = RouterTransaction.with(new TestController());
+
+        List<RouterTransaction> backstackView = router.getBackstackView();
+        assertTrue(backstackView.isEmpty());
+
+        router.pushController(rootTransaction);
+        router.pushController(topTransaction);
+
+        assertEquals(2, backstackView.size());
+        assertEquals(rootTransaction, backstackView.get(0));
+        assertEquals(topTransaction, backstackView.get(1));
+        assertEquals(rootTransaction, router.getBackstackEntry(0));
+        assertEquals(topTransaction, router.getBackstackEntry(1));
+
+        router.popCurrentController();
+
+        assertEquals(1, backstackView.size());
+        assertEquals(rootTransaction, backstackView.get(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testBackstackViewIsReadOnly() {
+        router.getBackstackView().add(RouterTransaction.with(new TestController()));
+    }
+
     @Test
     public void testNewSetBackstack() {
         router.setRoot(RouterTransaction.with(new TestController()));
@@ -267,9 +295,9 @@ public class RouterTests {
         assertEquals(middleTransaction, fetchedBackstack.get(1));
         assertEquals(topTransaction, fetchedBackstack.get(2));
 
-        assertEquals(router, rootTransaction.controller.getRouter());
-        assertEquals(router, middleTransaction.controller.getRouter());
-        assertEquals(router, topTransaction.controller.getRouter());
+        assertEquals(router, rootTransaction.controller().getRouter());
+        assertEquals(router, middleTransaction.controller().getRouter());
+        assertEquals(router, topTransaction.controller().getRouter());
     }
 
     @Test
@@ -282,8 +310,8 @@ public class RouterTests {
         router.pushController(oldTopTransaction);
         assertEquals(2, router.getBackstackSize());
 
-        assertTrue(oldRootTransaction.controller.isAttached());
-        assertTrue(oldTopTransaction.controller.isAttached());
+        assertTrue(oldRootTransaction.controller().isAttached());
+        assertTrue(oldTopTransaction.controller().isAttached());
 
         RouterTransaction rootTransaction = RouterTransaction.with(new TestController());
         RouterTransaction middleTransaction = RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler
@@ -301,11 +329,11 @@ public class RouterTests {
         assertEquals(middleTransaction, fetchedBackstack.get(1));
         assertEquals(topTransaction, fetchedBackstack.get(2));
 
-        assertFalse(oldRootTransaction.controller.isAttached());
-        assertFalse(oldTopTransaction.controller.isAttached());
-        assertTrue(rootTransaction.controller.isAttached());
-        assertTrue(middleTransaction.controller.isAttached());
-        assertTrue(topTransaction.controller.isAttached());
+        assertFalse(oldRootTransaction.controller().isAttached());
+        assertFalse(oldTopTransaction.controller().isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertTrue(middleTransaction.controller().isAttached());
+        assertTrue(topTransaction.controller().isAttached());
     }
 
     @Test
@@ -324,9 +352,9 @@ public class RouterTests {
         assertEquals(1, router.getBackstackSize());
         assertEquals(rootTransaction, router.getBackstack().get(0));
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertFalse(transaction1.controller.isAttached());
-        assertFalse(transaction2.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertFalse(transaction1.controller().isAttached());
+        assertFalse(transaction2.controller().isAttached());
     }
 
     @Test
@@ -345,9 +373,9 @@ public class RouterTests {
         assertEquals(1, router.getBackstackSize());
         assertEquals(rootTransaction, router.getBackstack().get(0));
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertFalse(transaction1.controller.isAttached());
-        assertFalse(transaction2.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertFalse(transaction1.controller().isAttached());
+        assertFalse(transaction2.controller().isAttached());
     }
 
     @Test
@@ -385,8 +413,8 @@ public class RouterTests {
 
         assertEquals(2, router.getBackstackSize());
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertTrue(topTransaction.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertTrue(topTransaction.controller().isAttached());
 
         List<RouterTransaction> fetchedBackstack = router.getBackstack();
         assertEquals(rootTransaction, fetchedBackstack.get(0));
@@ -403,9 +431,9 @@ public class RouterTests {
         assertEquals(rootTransaction, fetchedBackstack.get(0));
         assertEquals(newTopTransaction, fetchedBackstack.get(1));
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertFalse(topTransaction.controller.isAttached());
-        assertTrue(newTopTransaction.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertFalse(topTransaction.controller().isAttached());
+        assertTrue(newTopTransaction.controller().isAttached());
     }
 
     @Test
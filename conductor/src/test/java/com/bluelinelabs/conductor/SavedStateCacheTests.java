@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SavedStateCacheTests {
+
+    private Router router;
+
+    public void createActivityController(Bundle savedInstanceState) {
+        ActivityProxy activityProxy = new ActivityProxy().create(savedInstanceState).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedInstanceState);
+    }
+
+    @Before
+    public void setup() {
+        createActivityController(null);
+    }
+
+    @Test
+    public void testNotCachedByDefault() {
+        TestController controller = new TestController();
+        router.setRoot(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        pushCover();
+
+        router.saveInstanceState(new Bundle());
+        router.saveInstanceState(new Bundle());
+
+        assertFalse(controller.isSavedStateCacheEnabled());
+        assertEquals(2, controller.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testDetachedControllerReused() {
+        TestController controller = new TestController();
+        controller.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        TestController cover = pushCover();
+
+        Bundle first = ((Controller)controller).saveInstanceState();
+        Bundle second = ((Controller)controller).saveInstanceState();
+        router.saveInstanceState(new Bundle());
+
+        assertSame(first, second);
+        assertEquals(1, controller.currentCallState.saveInstanceStateCalls);
+        assertEquals(1, cover.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testAttachedControllerNotCached() {
+        TestController controller = new TestController();
+        controller.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.saveInstanceState(new Bundle());
+        router.saveInstanceState(new Bundle());
+
+        assertEquals(2, controller.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testInvalidation() {
+        TestController controller = new TestController();
+        controller.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        pushCover();
+
+        router.saveInstanceState(new Bundle());
+        controller.invalidateSavedState();
+        router.saveInstanceState(new Bundle());
+        assertEquals(2, controller.currentCallState.saveInstanceStateCalls);
+
+        controller.overridePopHandler(MockChangeHandler.defaultHandler());
+        router.saveInstanceState(new Bundle());
+        assertEquals(3, controller.currentCallState.saveInstanceStateCalls);
+
+        router.saveInstanceState(new Bundle());
+        assertEquals(3, controller.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testChildChangesInvalidateParent() {
+        TestController parent = new TestController();
+        parent.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(parent)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        TestController child = new TestController();
+        child.setSavedStateCacheEnabled(true);
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID));
+        childRouter.setRoot(RouterTransaction.with(child)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        pushCover();
+
+        router.saveInstanceState(new Bundle());
+        router.saveInstanceState(new Bundle());
+        assertEquals(1, parent.currentCallState.saveInstanceStateCalls);
+        assertEquals(1, child.currentCallState.saveInstanceStateCalls);
+
+        child.invalidateSavedState();
+        router.saveInstanceState(new Bundle());
+        assertEquals(2, parent.currentCallState.saveInstanceStateCalls);
+        assertEquals(2, child.currentCallState.saveInstanceStateCalls);
+
+        childRouter.setPopsLastView(true);
+        router.saveInstanceState(new Bundle());
+        assertEquals(3, parent.currentCallState.saveInstanceStateCalls);
+        assertEquals(2, child.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testUncachedChildBlocksParent() {
+        TestController parent = new TestController();
+        parent.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(parent)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        TestController child = new TestController();
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID));
+        childRouter.setRoot(RouterTransaction.with(child)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        pushCover();
+
+        router.saveInstanceState(new Bundle());
+        router.saveInstanceState(new Bundle());
+
+        assertEquals(2, parent.currentCallState.saveInstanceStateCalls);
+        assertEquals(2, child.currentCallState.saveInstanceStateCalls);
+    }
+
+    @Test
+    public void testRestoreFromCachedState() {
+        TestController controller = new TestController();
+        controller.setSavedStateCacheEnabled(true);
+        router.setRoot(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .tag("root"));
+        pushCover();
+
+        router.saveInstanceState(new Bundle());
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        Controller restored = restoredRouter.getControllerWithTag("root");
+        assertEquals(controller.getInstanceId(), restored.getInstanceId());
+    }
+
+    private TestController pushCover() {
+        TestController cover = new TestController();
+        router.pushController(RouterTransaction.with(cover)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        return cover;
+    }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Binder;
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SavedStateStoreTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private FileSavedStateStore store;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        store = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1));
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setSavedStateStore(null);
+    }
+
+    @Test
+    public void testWriteRead() {
+        Bundle nested = new Bundle();
+        nested.putInt("int", 42);
+        Bundle state = new Bundle();
+        state.putString("string", "value");
+        state.putBundle("nested", nested);
+
+        assertTrue(store.write("key", state));
+
+        Bundle restored = store.read("key");
+        assertNotNull(restored);
+        assertEquals("value", restored.getString("string"));
+        assertEquals(42, restored.getBundle("nested").getInt("int"));
+    }
+
+    @Test
+    public void testReadMissing() {
+        assertNull(store.read("missing"));
+    }
+
+    @Test
+    public void testWriteReplaces() {
+        Bundle first = new Bundle();
+        first.putString("string", "first");
+        Bundle second = new Bundle();
+        second.putString("string", "second");
+
+        store.write("key", first);
+        store.write("key", second);
+
+        assertEquals("second", store.read("key").getString("string"));
+    }
+
+    @Test
+    public void testDelete() {
+        store.write("key", new Bundle());
+        store.delete("key");
+
+        assertNull(store.read("key"));
+    }
+
+    @Test
+    public void testStaleStatesCollected() throws IOException {
+        File stale = new File(directory, "stale.state");
+        assertTrue(stale.createNewFile());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+
+        store.write("key", new Bundle());
+
+        assertFalse(stale.exists());
+        assertNotNull(store.read("key"));
+    }
+
+    @Test
+    public void testBackgroundWrite() throws InterruptedException {
+        QueueExecutor executor = new QueueExecutor();
+        FileSavedStateStore backgroundStore = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1), executor);
+        Bundle state = new Bundle();
+        state.putString("string", "value");
+
+        assertTrue(backgroundStore.write("key", state));
+        assertFalse(new File(directory, "key.state").exists());
+        Bundle pending = backgroundStore.read("key");
+        assertNotSame(state, pending);
+        assertEquals("value", pending.getString("string"));
+        assertFalse(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+
+        executor.runAll();
+
+        assertTrue(new File(directory, "key.state").exists());
+        assertTrue(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+        Bundle restored = backgroundStore.read("key");
+        assertNotSame(state, restored);
+        assertEquals("value", restored.getString("string"));
+    }
+
+    @Test
+    public void testArgsChangedWhileWritePending() throws InterruptedException {
+        QueueExecutor executor = new QueueExecutor();
+        FileSavedStateStore backgroundStore = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1), executor);
+        Conductor.setSavedStateStore(backgroundStore);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        TestController controller = new TestController();
+        controller.getArgs().putString("arg", "saved");
+        router.setRoot(RouterTransaction.with(controller).tag("root"));
+
+        Bundle savedState = new Bundle();
+        activityProxy.saveInstanceState(savedState);
+        String key = savedState.getString("LifecycleHandler.routerStateKey" + activityProxy.getView().getId());
+        assertFalse(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+
+        controller.getArgs().putString("arg", "changed");
+        controller.getArgs().putString("other", "added");
+        assertEquals("saved", findArgs(backgroundStore.read(key)).getString("arg"));
+
+        executor.runAll();
+        assertTrue(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+
+        Bundle restoredArgs = findArgs(backgroundStore.read(key));
+        assertEquals("saved", restoredArgs.getString("arg"));
+        assertNull(restoredArgs.getString("other"));
+    }
+
+    @Test
+    public void testPendingStateChangedByReader() throws InterruptedException {
+        QueueExecutor executor = new QueueExecutor();
+        FileSavedStateStore backgroundStore = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1), executor);
+        Bundle nested = new Bundle();
+        nested.putString("string", "saved");
+        ArrayList<Bundle> list = new ArrayList<>();
+        list.add(nested);
+        Bundle state = new Bundle();
+        state.putParcelableArrayList("list", list);
+
+        backgroundStore.write("key", state);
+        nested.putString("string", "changed by owner");
+        Bundle pending = backgroundStore.read("key");
+        pending.<Bundle>getParcelableArrayList("list").get(0).putString("string", "changed by reader");
+
+        executor.runAll();
+        assertTrue(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+
+        Bundle restored = backgroundStore.read("key");
+        assertEquals("saved", restored.<Bundle>getParcelableArrayList("list").get(0).getString("string"));
+    }
+
+    @Test
+    public void testDeleteBeforeBackgroundWrite() throws InterruptedException {
+        QueueExecutor executor = new QueueExecutor();
+        FileSavedStateStore backgroundStore = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1), executor);
+
+        backgroundStore.write("key", new Bundle());
+        backgroundStore.delete("key");
+
+        assertNull(backgroundStore.read("key"));
+        assertTrue(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+
+        executor.runAll();
+
+        assertFalse(new File(directory, "key.state").exists());
+        assertNull(backgroundStore.read("key"));
+    }
+
+    @Test
+    public void testRouterStateRestoredFromStore() {
+        Conductor.setSavedStateStore(store);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        TestController root = new TestController();
+        TestController top = new TestController();
+        router.setRoot(RouterTransaction.with(root).tag("root"));
+        router.pushController(RouterTransaction.with(top).tag("top").pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Bundle savedState = new Bundle();
+        activityProxy.saveInstanceState(savedState);
+
+        assertNull(savedState.getBundle("LifecycleHandler.routerState" + activityProxy.getView().getId()));
+        String key = savedState.getString("LifecycleHandler.routerStateKey" + activityProxy.getView().getId());
+        assertNotNull(key);
+        assertNotNull(store.read(key));
+
+        activityProxy = new ActivityProxy().create(savedState).start().resume();
+        Router restoredRouter = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedState);
+
+        assertEquals(2, restoredRouter.getBackstackSize());
+        assertEquals(root.getInstanceId(), restoredRouter.getControllerWithTag("root").getInstanceId());
+        assertEquals(top.getInstanceId(), restoredRouter.getControllerWithTag("top").getInstanceId());
+    }
+
+    @Test
+    public void testBinderNotWritten() throws InterruptedException {
+        QueueExecutor executor = new QueueExecutor();
+        FileSavedStateStore backgroundStore = new FileSavedStateStore(directory, TimeUnit.DAYS.toMillis(1), executor);
+        Bundle nested = new Bundle();
+        nested.putBinder("binder", new Binder());
+        ArrayList<Bundle> list = new ArrayList<>();
+        list.add(nested);
+        Bundle state = new Bundle();
+        state.putParcelableArrayList("list", list);
+
+        assertFalse(store.write("key", state));
+        assertFalse(backgroundStore.write("key", state));
+
+        assertTrue(backgroundStore.awaitPendingWrites(0, TimeUnit.MILLISECONDS));
+        assertNull(store.read("key"));
+        assertNull(backgroundStore.read("key"));
+    }
+
+    @Test
+    public void testRouterStateWithBinderKeptInBundle() {
+        Conductor.setSavedStateStore(store);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        TestController controller = new TestController();
+        controller.getArgs().putBinder("binder", new Binder());
+        router.setRoot(RouterTransaction.with(controller));
+
+        Bundle savedState = new Bundle();
+        activityProxy.saveInstanceState(savedState);
+
+        assertNotNull(savedState.getBundle("LifecycleHandler.routerState" + activityProxy.getView().getId()));
+        assertNull(savedState.getString("LifecycleHandler.routerStateKey" + activityProxy.getView().getId()));
+    }
+
+    @Test
+    public void testPreviousStateDeletedOnSave() {
+        Conductor.setSavedStateStore(store);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        Bundle firstState = new Bundle();
+        activityProxy.saveInstanceState(firstState);
+        Bundle secondState = new Bundle();
+        activityProxy.saveInstanceState(secondState);
+
+        String containerKey = "LifecycleHandler.routerStateKey" + activityProxy.getView().getId();
+        assertNull(store.read(firstState.getString(containerKey)));
+        assertNotNull(store.read(secondState.getString(containerKey)));
+    }
+
+    /**
+     * Returns the first Bundle in the tree that holds an "arg" entry, wherever the router state nests it.
+     */
+    private static Bundle findArgs(Bundle bundle) {
+        if (bundle.containsKey("arg")) {
+            return bundle;
+        }
+        for (String key : bundle.keySet()) {
+            Object value = bundle.get(key);
+            Bundle found = null;
+            if (value instanceof Bundle) {
+                found = findArgs((Bundle)value);
+            } else if (value instanceof List || value instanceof Object[]) {
+                Iterable<?> elements = value instanceof List ? (List<?>)value : Arrays.asList((Object[])value);
+                for (Object element : elements) {
+                    if (element instanceof Bundle && found == null) {
+                        found = findArgs((Bundle)element);
+                    }
+                }
+            }
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static class QueueExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+}
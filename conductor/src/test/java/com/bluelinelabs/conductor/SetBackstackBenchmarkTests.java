@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.Benchmark;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Measures {@link Router#setBackstack(List, ControllerChangeHandler)} on large backstacks where every other
+ * controller is retained and the rest are replaced by new ones. Only the check that retained controllers keep
+ * their positions runs by default, the timing runs need benchmarks to be enabled through
+ * {@link Benchmark#assumeEnabled()}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SetBackstackBenchmarkTests {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testRetainedControllersKeepTheirPositions() {
+        List<RouterTransaction> retained = new ArrayList<>();
+        for (int i = 0; i < 100; i += 2) {
+            retained.add(RouterTransaction.with(new TestController()));
+        }
+
+        router.setBackstack(mixedBackstack(retained, 100), null);
+        router.setBackstack(mixedBackstack(retained, 100), null);
+
+        assertRetained(retained, 100);
+    }
+
+    @Test
+    public void benchmark10Entries() {
+        benchmarkSetBackstack(10);
+    }
+
+    @Test
+    public void benchmark100Entries() {
+        benchmarkSetBackstack(100);
+    }
+
+    @Test
+    public void benchmark1000Entries() {
+        benchmarkSetBackstack(1000);
+    }
+
+    private void benchmarkSetBackstack(int size) {
+        Benchmark.assumeEnabled();
+
+        List<RouterTransaction> retained = new ArrayList<>();
+        for (int i = 0; i < size; i += 2) {
+            retained.add(RouterTransaction.with(new TestController()));
+        }
+
+        // Replaced controllers are destroyed, so every round gets fresh ones up front
+        final Queue<List<RouterTransaction>> backstacks = new ArrayDeque<>();
+        for (int round = 0; round <= WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            backstacks.add(mixedBackstack(retained, size));
+        }
+
+        router.setBackstack(backstacks.remove(), null);
+
+        Benchmark.measure("setBackstack with " + size + " entries, half retained", WARMUP_ROUNDS, MEASURED_ROUNDS, new Runnable() {
+            @Override
+            public void run() {
+                router.setBackstack(backstacks.remove(), null);
+            }
+        });
+
+        assertRetained(retained, size);
+    }
+
+    private void assertRetained(List<RouterTransaction> retained, int size) {
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(size, backstack.size());
+        for (int i = 0; i < retained.size(); i++) {
+            assertSame(retained.get(i), backstack.get(i * 2));
+        }
+    }
+
+    private static List<RouterTransaction> mixedBackstack(List<RouterTransaction> retained, int size) {
+        List<RouterTransaction> backstack = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            backstack.add(i % 2 == 0 ? retained.get(i / 2) : RouterTransaction.with(new TestController()));
+        }
+        return backstack;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.internal.TraceUtils;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TracingTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        Conductor.setTracingEnabled(true);
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new TestController()));
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setTracingEnabled(false);
+    }
+
+    @Test
+    public void testNavigationWithTracing() {
+        TestController controller = new TestController();
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        assertTrue(controller.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+
+        router.setBackstack(Arrays.asList(RouterTransaction.with(new TestController())), MockChangeHandler.defaultHandler());
+        assertEquals(1, router.getBackstackSize());
+        assertTrue(controller.isDestroyed());
+    }
+
+    @Test
+    public void testSaveRestoreWithTracing() {
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertEquals(2, restoredRouter.getBackstackSize());
+        assertEquals(router.getControllerWithTag("top").getInstanceId(), restoredRouter.getControllerWithTag("top").getInstanceId());
+    }
+
+    @Test
+    public void testSectionNames() {
+        assertEquals("Conductor.inflate TestController", TraceUtils.sectionName("Conductor.inflate", TestController.class));
+        assertEquals("Conductor.setBackstack", TraceUtils.sectionName("Conductor.setBackstack", null));
+
+        Object anonymous = new Object() { };
+        assertEquals("Conductor.attach TracingTests$1", TraceUtils.sectionName("Conductor.attach", anonymous.getClass()));
+
+        char[] longName = new char[200];
+        Arrays.fill(longName, 'a');
+        assertEquals(127, TraceUtils.sectionName(new String(longName), TestController.class).length());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.View;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ViewPoolTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    public void createActivityController(Bundle savedInstanceState) {
+        activityProxy = new ActivityProxy().create(savedInstanceState).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), savedInstanceState);
+        router.setRoot(RouterTransaction.with(new TestController()));
+    }
+
+    @Before
+    public void setup() {
+        createActivityController(null);
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setViewPoolSize(3);
+    }
+
+    @Test
+    public void testDestroyedViewIsRecycled() {
+        PooledController first = new PooledController();
+        router.pushController(RouterTransaction.with(first)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        View firstView = first.getView();
+        assertNotNull(firstView);
+        router.popCurrentController();
+
+        PooledController second = new PooledController();
+        router.pushController(RouterTransaction.with(second)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertSame(firstView, second.getView());
+        assertEquals(0, second.currentCallState.createViewCalls);
+        assertEquals(1, second.binds);
+    }
+
+    @Test
+    public void testDetachReleasesView() {
+        PooledController first = new PooledController();
+        router.pushController(RouterTransaction.with(first)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        View firstView = first.getView();
+
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        assertNull(first.getView());
+        assertEquals(1, first.currentCallState.destroyViewCalls);
+
+        router.popCurrentController();
+        assertSame(firstView, first.getView());
+        assertEquals(1, first.currentCallState.createViewCalls);
+        assertEquals(1, first.binds);
+    }
+
+    @Test
+    public void testClearViewPool() {
+        PooledController first = new PooledController();
+        router.pushController(RouterTransaction.with(first)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        View firstView = first.getView();
+        router.popCurrentController();
+        router.clearViewPool();
+
+        PooledController second = new PooledController();
+        router.pushController(RouterTransaction.with(second)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertNotSame(firstView, second.getView());
+        assertEquals(1, second.currentCallState.createViewCalls);
+        assertEquals(0, second.binds);
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        Conductor.setViewPoolSize(2);
+        ViewPool pool = new ViewPool();
+        for (int i = 0; i < 3; i++) {
+            pool.release(PooledController.class, new View(activityProxy.getActivity()));
+        }
+
+        assertEquals(2, pool.size(PooledController.class));
+        assertNotNull(pool.acquire(PooledController.class, activityProxy.getActivity()));
+        assertNotNull(pool.acquire(PooledController.class, activityProxy.getActivity()));
+        assertNull(pool.acquire(PooledController.class, activityProxy.getActivity()));
+    }
+
+    @Test
+    public void testPoolingDisabled() {
+        Conductor.setViewPoolSize(0);
+        PooledController first = new PooledController();
+        router.pushController(RouterTransaction.with(first)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        assertEquals(0, router.getViewPool().size(PooledController.class));
+    }
+
+    public static class PooledController extends TestController {
+
+        int binds;
+
+        public PooledController() {
+            setRetainViewMode(RetainViewMode.POOLED);
+        }
+
+        @Override
+        protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) {
+            binds++;
+        }
+    }
+}
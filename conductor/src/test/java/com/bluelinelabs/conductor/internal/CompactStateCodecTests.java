@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Bundle;
+import android.util.SparseArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CompactStateCodecTests {
+
+    @Test
+    public void testValuesRoundTrip() {
+        Bundle bundle = new Bundle();
+        bundle.putString("string", "value");
+        bundle.putString("null", null);
+        bundle.putInt("int", -42);
+        bundle.putInt("maxInt", Integer.MAX_VALUE);
+        bundle.putLong("long", Long.MIN_VALUE);
+        bundle.putBoolean("true", true);
+        bundle.putBoolean("false", false);
+        bundle.putFloat("float", 1.5f);
+        bundle.putDouble("double", -2.25);
+        bundle.putByteArray("bytes", new byte[] { 1, 2, 3 });
+        bundle.putStringArrayList("strings", new ArrayList<>(Arrays.asList("a", "b", "a")));
+        bundle.putStringArrayList("emptyList", new ArrayList<String>());
+
+        Bundle restored = roundTrip(bundle);
+
+        assertEquals(bundle.size(), restored.size());
+        assertEquals("value", restored.getString("string"));
+        assertNull(restored.getString("null"));
+        assertTrue(restored.containsKey("null"));
+        assertEquals(-42, restored.getInt("int"));
+        assertEquals(Integer.MAX_VALUE, restored.getInt("maxInt"));
+        assertEquals(Long.MIN_VALUE, restored.getLong("long"));
+        assertTrue(restored.getBoolean("true"));
+        assertTrue(!restored.getBoolean("false", true));
+        assertEquals(1.5f, restored.getFloat("float"), 0);
+        assertEquals(-2.25, restored.getDouble("double"), 0);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, restored.getByteArray("bytes"));
+        assertEquals(Arrays.asList("a", "b", "a"), restored.getStringArrayList("strings"));
+        assertTrue(restored.getStringArrayList("emptyList").isEmpty());
+    }
+
+    @Test
+    public void testNestedBundlesRoundTrip() {
+        ArrayList<Bundle> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Bundle handler = new Bundle();
+            handler.putString("className", "com.example.Handler");
+            handler.putBundle("savedState", new Bundle());
+
+            Bundle entry = new Bundle();
+            entry.putInt("index", i);
+            entry.putBundle("handler", handler);
+            entries.add(entry);
+        }
+        Bundle bundle = new Bundle();
+        bundle.putParcelableArrayList("entries", entries);
+
+        Bundle restored = roundTrip(bundle);
+
+        ArrayList<Bundle> restoredEntries = restored.getParcelableArrayList("entries");
+        assertNotNull(restoredEntries);
+        assertEquals(5, restoredEntries.size());
+        for (int i = 0; i < 5; i++) {
+            Bundle entry = restoredEntries.get(i);
+            assertEquals(i, entry.getInt("index"));
+            assertEquals("com.example.Handler", entry.getBundle("handler").getString("className"));
+            assertNotNull(entry.getBundle("handler").getBundle("savedState"));
+        }
+
+        // Interned bundles are restored as separate instances
+        assertNotSame(restoredEntries.get(0).getBundle("handler"), restoredEntries.get(1).getBundle("handler"));
+    }
+
+    @Test
+    public void testParceledValuesRoundTrip() {
+        SparseArray<String> sparseArray = new SparseArray<>();
+        sparseArray.put(3, "three");
+
+        Bundle state = new Bundle();
+        state.putParcelable("parcelable", new StringSparseArrayParceler(sparseArray));
+        state.putString("string", "value");
+        Bundle bundle = new Bundle();
+        bundle.putBundle("state", state);
+        bundle.putString("string", "value");
+
+        Bundle restored = roundTrip(bundle);
+
+        Bundle restoredState = restored.getBundle("state");
+        restoredState.setClassLoader(getClass().getClassLoader());
+        StringSparseArrayParceler parceler = restoredState.getParcelable("parcelable");
+        assertEquals("three", parceler.getStringSparseArray().get(3));
+        assertEquals("value", restoredState.getString("string"));
+        assertEquals("value", restored.getString("string"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeRejectsOtherData() {
+        CompactStateCodec.decode(new byte[] { 1, 2, 3 }, getClass().getClassLoader());
+    }
+
+    private Bundle roundTrip(Bundle bundle) {
+        byte[] encoded = CompactStateCodec.encode(bundle);
+        assertNotNull(encoded);
+        return CompactStateCodec.decode(encoded, getClass().getClassLoader());
+    }
+}
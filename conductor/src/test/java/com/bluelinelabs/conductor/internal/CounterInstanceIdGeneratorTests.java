@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.internal;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CounterInstanceIdGeneratorTests {
+
+    @Test
+    public void testIdsUnique() {
+        CounterInstanceIdGenerator generator = new CounterInstanceIdGenerator();
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(ids.add(generator.nextInstanceId()));
+        }
+    }
+
+    @Test
+    public void testIdsDifferAcrossNonces() {
+        CounterInstanceIdGenerator firstProcess = new CounterInstanceIdGenerator(42);
+        CounterInstanceIdGenerator secondProcess = new CounterInstanceIdGenerator(43);
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(firstProcess.nextInstanceId().equals(secondProcess.nextInstanceId()));
+        }
+    }
+
+    @Test
+    public void testIdFormat() {
+        CounterInstanceIdGenerator generator = new CounterInstanceIdGenerator(-1);
+
+        assertEquals(Long.toString(Long.MAX_VALUE, Character.MAX_RADIX) + "-1", generator.nextInstanceId());
+        assertEquals(Long.toString(Long.MAX_VALUE, Character.MAX_RADIX) + "-2", generator.nextInstanceId());
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Lalafo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bluelinelabs.conductor.util;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimal timing helper for the Robolectric benchmark tests. Results are printed rather than asserted, as
+ * absolute numbers under Robolectric are only meaningful relative to each other.
+ */
+public final class Benchmark {
+
+    private static final String ENABLED_PROPERTY = "conductor.benchmark";
+
+    private static final int DEFAULT_WARMUP_ROUNDS = 5;
+    private static final int DEFAULT_MEASURED_ROUNDS = 20;
+
+    private Benchmark() {}
+
+    /**
+     * Skips the calling test unless the {@code conductor.benchmark} system property is {@code true}, e.g. through
+     * {@code ./gradlew :conductor:testDebugUnitTest -Pconductor.benchmark=true}. Timing runs are slow and their
+     * output is only useful when someone is looking at it.
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Runs the block a few times to warm up, then returns the median duration of the measured rounds in nanoseconds.
+     */
+    public static long measure(String label, Runnable block) {
+        return measure(label, DEFAULT_WARMUP_ROUNDS, DEFAULT_MEASURED_ROUNDS, block);
+    }
+
+    public static long measure(String label, int warmupRounds, int measuredRounds, Runnable block) {
+        for (int i = 0; i < warmupRounds; i++) {
+            block.run();
+        }
+
+        long[] durations = new long[measuredRounds];
+        for (int i = 0; i < measuredRounds; i++) {
+            long start = System.nanoTime();
+            block.run();
+            durations[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(durations);
+        long median = durations[measuredRounds / 2];
+        System.out.println(String.format(Locale.US, "[benchmark] %s: median %.3f ms over %d rounds", label, median / 1_000_000.0, measuredRounds));
+        return median;
+    }
+
+    /**
+     * Returns whether {@link #measureAllocations(String, int, int, Runnable)} is supported by the running JVM.
+     */
+    public static boolean isAllocationCountingSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * Runs the block a few times to warm up, then returns the median number of bytes the current thread allocated
+     * during the measured rounds.
+     */
+    public static long measureAllocations(String label, int warmupRounds, int measuredRounds, Runnable block) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < warmupRounds; i++) {
+            block.run();
+        }
+
+        long[] allocations = new long[measuredRounds];
+        for (int i = 0; i < measuredRounds; i++) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            block.run();
+            allocations[i] = threadBean.getThreadAllocatedBytes(threadId) - start;
+        }
+
+        Arrays.sort(allocations);
+        long median = allocations[measuredRounds / 2];
+        System.out.println(String.format(Locale.US, "[benchmark] %s: median %d bytes allocated over %d rounds", label, median, measuredRounds));
+        return median;
+    }
+}